@@ -0,0 +1,130 @@
+package com.LocalService.lsp.config;
+
+import com.LocalService.lsp.service.IdempotencyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * MongoIndexRegistry - Declarative index list for every hot query path
+ * Spring Boot leaves auto-index-creation off, so @Indexed / @GeoSpatialIndexed annotations alone create
+ * nothing. This registry is the single source of truth: each entry names the repository finder or
+ * pipeline it serves, and all of them are created (idempotently, default names) once the app is ready.
+ * Runs on the task executor so a slow or unavailable database never blocks startup.
+ */
+@Component
+public class MongoIndexRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexRegistry.class);
+
+    public record IndexSpec(String collection, IndexDefinition index, String servedQuery) {}
+
+    public static final List<IndexSpec> INDEXES = List.of(
+            // providers
+            new IndexSpec("providers", new GeospatialIndex("coordinates").typed(GeoSpatialIndexType.GEO_2DSPHERE),
+                    "ProviderService $geoNear (NEARBY with GPS)"),
+            new IndexSpec("providers", new Index().on("customerId", Sort.Direction.ASC),
+                    "ProviderRepository.findByCustomerId"),
+            new IndexSpec("providers", new Index().on("serviceCategoryKeys", Sort.Direction.ASC).on("serviceDeliveryType", Sort.Direction.ASC),
+                    "ProviderService category search (REMOTE / NEARBY text)"),
+            new IndexSpec("providers", new Index().on("cityKey", Sort.Direction.ASC).on("serviceCategoryKeys", Sort.Direction.ASC),
+                    "ProviderService city (+ category) search"),
+            new IndexSpec("providers", new Index().on("serviceDeliveryType", Sort.Direction.ASC),
+                    "ProviderService unfiltered mode search"),
+
+            // customers / otp
+            new IndexSpec("customers", new Index().on("email", Sort.Direction.ASC).unique(),
+                    "CustomerRepository.findByEmail / existsByEmail"),
+            new IndexSpec("otp_records", new Index().on("email", Sort.Direction.ASC),
+                    "OtpRepository.findByEmail / deleteByEmail"),
+
+            // transactions
+            new IndexSpec("transactions", new Index().on("providerId", Sort.Direction.ASC).on("status", Sort.Direction.ASC)
+                    .on("billed", Sort.Direction.ASC).on("createdAt", Sort.Direction.ASC),
+                    "TransactionRepository.findByProviderIdAndStatusAndBilledFalseAndCreatedAtBetween, findByProviderId"),
+            new IndexSpec("transactions", new Index().on("providerId", Sort.Direction.ASC).on("status", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.ASC),
+                    "TransactionRepository.findAllByProviderIdAndStatusAndCreatedAtBetween"),
+            new IndexSpec("transactions", new Index().on("customerId", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.DESC).on("_id", Sort.Direction.DESC),
+                    "TransactionHistoryService customer history (keyset), TransactionRepository.findByCustomerId"),
+            new IndexSpec("transactions", new Index().on("providerId", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.DESC).on("_id", Sort.Direction.DESC),
+                    "TransactionHistoryService provider history (keyset)"),
+            new IndexSpec("transactions", new Index().on("status", Sort.Direction.ASC).on("billed", Sort.Direction.ASC),
+                    "TransactionRepository.findByStatusAndBilledFalse"),
+
+            new IndexSpec("idempotency_keys", new Index().on("createdAt", Sort.Direction.ASC).expire(IdempotencyService.RETENTION),
+                    "IdempotencyService key retention (TTL)"),
+
+            // insights events
+            new IndexSpec("profile_views", new Index().on("providerId", Sort.Direction.ASC).on("timestamp", Sort.Direction.ASC),
+                    "ProfileViewRepository.findAllByProviderIdAndTimestampBetween"),
+            new IndexSpec("lead_events", new Index().on("providerId", Sort.Direction.ASC)
+                    .on("timestamp", Sort.Direction.DESC).on("_id", Sort.Direction.DESC),
+                    "LeadHistoryService lead activity (keyset), LeadEventRepository.findAllByProviderIdAndTimestampBetween"),
+
+            new IndexSpec("provider_daily_stats", new Index().on("providerId", Sort.Direction.ASC).on("day", Sort.Direction.ASC),
+                    "ProviderDailyStatsService.totals (insights month view)"),
+
+            // reviews / offers / statements
+            new IndexSpec("reviews", new Index().on("providerId", Sort.Direction.ASC),
+                    "ReviewRepository.findByProviderId"),
+            new IndexSpec("reviews", new Index().on("customerId", Sort.Direction.ASC),
+                    "ReviewRepository.findByCustomerId"),
+            new IndexSpec("offers", new Index().on("providerId", Sort.Direction.ASC).on("isActive", Sort.Direction.ASC),
+                    "OfferRepository.findByProviderIdAndIsActiveTrue, findByProviderId"),
+            new IndexSpec("commission_statements", new Index().on("providerId", Sort.Direction.ASC).on("billingMonth", Sort.Direction.ASC),
+                    "StatementRepository.findByProviderId / existsByProviderIdAndBillingMonth")
+    );
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        taskExecutor.execute(this::ensureIndexes);
+    }
+
+    /**
+     * Creates every registered index. Existing identical indexes are a no-op on the server.
+     * @return number of indexes confirmed.
+     */
+    public int ensureIndexes() {
+        long startedAt = System.currentTimeMillis();
+        int ensured = 0;
+        for (IndexSpec spec : INDEXES) {
+            try {
+                String name = mongoTemplate.indexOps(spec.collection()).createIndex(spec.index());
+                logger.debug("Index ensured: {}.{} ({})", spec.collection(), name, spec.servedQuery());
+                ensured++;
+            } catch (DataAccessResourceFailureException e) {
+                logger.warn("Index bootstrap aborted, database unreachable: {}", e.getMessage());
+                return ensured;
+            } catch (Exception e) {
+                // e.g. a unique index over existing duplicates; keep going with the rest
+                logger.error("Failed to create index on {} for {}: {}", spec.collection(), spec.servedQuery(), e.getMessage());
+            }
+        }
+        logger.info("Index bootstrap finished: {}/{} indexes ensured in {} ms", ensured, INDEXES.size(), System.currentTimeMillis() - startedAt);
+        return ensured;
+    }
+}
@@ -0,0 +1,14 @@
+package com.LocalService.lsp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Provides the shared taskScheduler (term index refresh, SSE heartbeats, change stream retries).
+ * @Scheduled jobs must be opt-in: StatementService's monthly job only runs when
+ * lsp.statements.monthly-job.cron is set (it takes no cluster-wide lock, so set it on one node only).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
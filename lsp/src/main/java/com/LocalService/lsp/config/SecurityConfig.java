@@ -46,6 +46,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/transactions/**").permitAll()
                         .requestMatchers("/api/providers/**").permitAll()
+                        // Health is public for load balancers; /actuator/metrics stays behind authentication
+                        .requestMatchers("/actuator/health").permitAll()
 
                         // Fallback: any other requests must be authenticated
                         .anyRequest().authenticated()
@@ -78,9 +80,14 @@ public class SecurityConfig {
                 "Cache-Control",
                 "X-Requested-With",
                 "Accept",
-                "Origin"
+                "Origin",
+                "Last-Event-ID",
+                "Idempotency-Key"
         ));
 
+        // Let browsers read the streaming search cursor and the idempotent-replay marker
+        configuration.setExposedHeaders(List.of("X-Next-Cursor", "Idempotent-Replayed"));
+
         configuration.setAllowCredentials(true);
 
         // 8. Apply to ALL paths
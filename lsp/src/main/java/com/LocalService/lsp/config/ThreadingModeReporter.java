@@ -0,0 +1,34 @@
+package com.LocalService.lsp.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the runtime threading mode at startup.
+ * Virtual threads (profile "virtual-threads") need Java 21: on an older JVM Spring Boot silently keeps
+ * platform threads, so that case is logged as a warning rather than discovered under load.
+ */
+@Component
+public class ThreadingModeReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingModeReporter.class);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportThreadingMode(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            logger.info("Threading mode: virtual threads (requests, @Scheduled jobs, async tasks)");
+        } else if (requested) {
+            logger.warn("spring.threads.virtual.enabled=true needs Java 21+, running on Java {}: using platform threads",
+                    Runtime.version().feature());
+        } else {
+            logger.info("Threading mode: platform threads");
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.LocalService.lsp.controller;
+
+import com.LocalService.lsp.service.ProviderDailyStatsService;
+import com.LocalService.lsp.service.ProviderStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.Map;
+
+/**
+ * AdminJobsController - Manual triggers for maintenance / backfill jobs.
+ */
+@RestController
+@RequestMapping("/api/admin/jobs")
+@CrossOrigin(origins = "*")
+public class AdminJobsController {
+
+    @Autowired private ProviderStatsService providerStatsService;
+    @Autowired private ProviderDailyStatsService providerDailyStatsService;
+
+    /**
+     * Recomputes the denormalized Provider.stats counters from reviews and transactions.
+     */
+    @PostMapping("/provider-stats/rebuild")
+    public ResponseEntity<?> rebuildProviderStats() {
+        int updated = providerStatsService.rebuildAll();
+        return ResponseEntity.ok(Map.of("message", "Provider stats rebuilt", "updated", updated));
+    }
+
+    /**
+     * Rebuilds the provider_daily_stats insights rollup from profile views, leads and completed transactions.
+     */
+    @PostMapping("/provider-daily-stats/rebuild")
+    public ResponseEntity<?> rebuildProviderDailyStats() {
+        providerDailyStatsService.rebuildAll();
+        return ResponseEntity.ok(Map.of("message", "Provider daily stats rebuilt"));
+    }
+}
@@ -1,16 +1,21 @@
 package com.LocalService.lsp.controller;
 
+import com.LocalService.lsp.dto.CursorPage;
 import com.LocalService.lsp.model.*;
 import com.LocalService.lsp.repository.*;
+import com.LocalService.lsp.service.InsightsIngestionService;
+import com.LocalService.lsp.service.LeadHistoryService;
+import com.LocalService.lsp.service.ProviderDailyStatsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/insights")
@@ -18,88 +23,113 @@ import java.util.stream.Collectors;
 public class InsightsController {
 
     private static final Logger logger = LoggerFactory.getLogger(InsightsController.class);
+    private static final int DASHBOARD_LEADS = 50;
 
-    @Autowired private ProfileViewRepository viewRepo;
-    @Autowired private LeadEventRepository leadRepo;
-    @Autowired private TransactionRepository txRepo;
+    @Autowired private LeadHistoryService leadHistoryService;
+    @Autowired private ProviderDailyStatsService dailyStatsService;
+    @Autowired private InsightsIngestionService ingestionService;
 
+    /**
+     * Record View - queued; written in batches by InsightsIngestionService.
+     */
     @PostMapping("/view")
     public ResponseEntity<?> recordView(@RequestBody Map<String, String> payload) {
-        String providerId = payload.get("providerId");
-        String sessionId = payload.get("sessionId");
-        viewRepo.save(new ProfileView(providerId, sessionId));
+        ingestionService.recordView(payload.get("providerId"), payload.get("sessionId"));
         return ResponseEntity.ok().build();
     }
 
     /**
      * Record Lead - DEDUPLICATION LOGIC
-     * 1. Checks if a lead from the same customer/method/provider exists within the last hour.
+     * 1. The same customer/method/provider counts once per hour (in-memory window, see InsightsIngestionService).
      * 2. If duplicate found, returns 200 OK without saving to keep frontend silent.
+     * 3. Unique leads are queued and written in batches.
      */
     @PostMapping("/lead")
     public ResponseEntity<?> recordLead(@RequestBody LeadEvent lead) {
-        String providerId = lead.getProviderId();
-        String customerId = lead.getCustomerId();
-        String method = lead.getContactMethod();
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-
-        // Fetch recent leads for this provider to check for duplicates
-        List<LeadEvent> recentLeads = leadRepo.findAllByProviderIdAndTimestampBetween(
-                providerId, oneHourAgo, LocalDateTime.now());
-
-        boolean isDuplicate = recentLeads.stream().anyMatch(e ->
-                Objects.equals(e.getContactMethod(), method) &&
-                        Objects.equals(e.getCustomerId(), customerId)
-        );
-
-        if (isDuplicate) {
-            logger.info("Duplicate lead ignored for provider: {} (Method: {})", providerId, method);
+        if (!ingestionService.recordLead(lead)) {
+            logger.info("Duplicate lead ignored for provider: {} (Method: {})", lead.getProviderId(), lead.getContactMethod());
             return ResponseEntity.ok().build();
         }
-
-        if (lead.getTimestamp() == null) {
-            lead.setTimestamp(LocalDateTime.now());
-        }
-
-        leadRepo.save(lead);
-        logger.info("New unique lead recorded for provider: {} via {}", providerId, method);
+        logger.info("New unique lead recorded for provider: {} via {}", lead.getProviderId(), lead.getContactMethod());
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Month Dashboard
+     * Counts and turnover are summed from the provider_daily_stats rollup (at most 31 small documents);
+     * leadsHistory is only the first page (the 50 most recent leads) of the activity timeline; when the month has
+     * more, leadsHistoryNextCursor continues it through GET /{providerId}/leads?from=&to=&cursor=.
+     * Unique views are approximate (merged daily HyperLogLog sketches) unless exact=true is passed for an audit.
+     */
     @GetMapping("/{providerId}")
     public ResponseEntity<?> getProviderInsights(
             @PathVariable String providerId,
             @RequestParam int year,
-            @RequestParam int month) {
+            @RequestParam int month,
+            @RequestParam(defaultValue = "false") boolean exact) {
 
         LocalDateTime start = LocalDateTime.of(year, month, 1, 0, 0);
         LocalDateTime end = start.plusMonths(1);
 
         logger.info("Fetching insights for {} between {} and {}", providerId, start, end);
 
+        ProviderDailyStatsService.Totals totals = dailyStatsService.totals(providerId,
+                start.toLocalDate(), end.toLocalDate().minusDays(1));
+
         // 1. Unique Profile Views
-        long views = viewRepo.findAllByProviderIdAndTimestampBetween(providerId, start, end)
-                .stream().map(ProfileView::getSessionId).distinct().count();
+        long views = exact
+                ? dailyStatsService.exactUniqueViewers(providerId, start, end)
+                : dailyStatsService.uniqueViewers(providerId, start.toLocalDate(), end.toLocalDate().minusDays(1));
 
         // 2. Lead Activity (Sorted: Most Recent First)
-        List<LeadEvent> leads = leadRepo.findAllByProviderIdAndTimestampBetween(providerId, start, end)
-                .stream()
-                .sorted(Comparator.comparing(LeadEvent::getTimestamp).reversed())
-                .collect(Collectors.toList());
-
-        // 3. Financials
-        List<Transaction> completedTxs = txRepo.findAllByProviderIdAndStatusAndCreatedAtBetween(
-                providerId, "COMPLETED", start, end);
-
-        double turnover = completedTxs.stream().mapToDouble(Transaction::getAmount).sum();
+        CursorPage<LeadEvent> leads = leadHistoryService.history(providerId, start, end, null, DASHBOARD_LEADS);
 
         Map<String, Object> response = new HashMap<>();
         response.put("views", views);
-        response.put("leadsCount", leads.size());
-        response.put("leadsHistory", leads);
-        response.put("totalOrders", completedTxs.size());
-        response.put("turnover", turnover);
+        response.put("viewsExact", exact);
+        response.put("leadsCount", totals.leads());
+        response.put("leadsHistory", leads.getItems());
+        response.put("leadsHistoryNextCursor", leads.getNextCursor());
+        // 3. Financials
+        response.put("totalOrders", totals.completedOrders());
+        response.put("turnover", totals.turnover());
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Lead Activity: newest first, keyset-paginated. Pass nextCursor back as ?cursor= for the next page.
+     * Optional window: from (inclusive), to (exclusive).
+     */
+    @GetMapping("/{providerId}/leads")
+    public ResponseEntity<?> getLeadHistory(
+            @PathVariable String providerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + LeadHistoryService.DEFAULT_PAGE_SIZE) int size) {
+        try {
+            return ResponseEntity.ok(leadHistoryService.history(providerId, from, to, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Unique profile views over any range of days [from, to] (ISO dates, both inclusive).
+     */
+    @GetMapping("/{providerId}/unique-views")
+    public ResponseEntity<?> getUniqueViews(
+            @PathVariable String providerId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean exact) {
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "'to' must not be before 'from'"));
+        }
+        long views = exact
+                ? dailyStatsService.exactUniqueViewers(providerId, from.atStartOfDay(), to.plusDays(1).atStartOfDay())
+                : dailyStatsService.uniqueViewers(providerId, from, to);
+        return ResponseEntity.ok(Map.of("views", views, "viewsExact", exact, "from", from, "to", to));
+    }
+}
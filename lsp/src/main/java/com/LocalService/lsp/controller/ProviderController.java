@@ -1,20 +1,31 @@
 package com.LocalService.lsp.controller;
 
-import com.LocalService.lsp.dto.ProviderSearchResultDTO;
+import com.LocalService.lsp.dto.ProviderSearchCardDTO;
+import com.LocalService.lsp.dto.ProviderSearchPage;
 import com.LocalService.lsp.model.Provider;
 import com.LocalService.lsp.repository.ProviderRepository;
+import com.LocalService.lsp.service.ProviderProfileService;
 import com.LocalService.lsp.service.ProviderService;
+import com.LocalService.lsp.service.ProviderTermIndex;
 import com.LocalService.lsp.service.S3Service;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -27,6 +38,8 @@ import java.util.Optional;
 public class ProviderController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProviderController.class);
+    private static final String NDJSON = "application/x-ndjson";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Autowired
     private ProviderRepository repository;
@@ -34,22 +47,134 @@ public class ProviderController {
     @Autowired
     private ProviderService providerService;
 
+    @Autowired
+    private ProviderProfileService profileService;
+
     @Autowired
     private S3Service s3Service;
 
+    @Autowired
+    private ProviderTermIndex termIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${lsp.search.explain.enabled:false}")
+    private boolean explainEnabled;
+
     /**
      * SEARCH: Mode-Aware Weighted Ranking
+     * Keyset paginated: pass the previous response's nextCursor as ?cursor= to fetch the next page.
+     * facets=true adds city / category / delivery-type counts over all matches.
+     * explain=true (when lsp.search.explain.enabled) bypasses the cache and returns a per-stage profile.
      */
     @GetMapping("/search")
-    public List<ProviderSearchResultDTO> searchProviders(
+    public ResponseEntity<?> searchProviders(
             @RequestParam(required = false) String service,
             @RequestParam(required = false) String city,
             @RequestParam(required = false) Double lat,
             @RequestParam(required = false) Double lon,
-            @RequestParam(defaultValue = "NEARBY") String mode) {
+            @RequestParam(defaultValue = "NEARBY") String mode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ProviderService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "false") boolean facets,
+            @RequestParam(defaultValue = "false") boolean explain) {
+
+        logger.info("Marketplace Search Triggered -> Mode: {}, Service: {}, City: {}, Lat: {}, Lon: {}", mode, service, city, lat, lon);
+        try {
+            if (explain && !explainEnabled) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Search profiling is disabled"));
+            }
+            ProviderSearchPage page = providerService.searchWithRanking(service, lat, lon, city, mode, cursor, size, facets, explain);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * SEARCH (STREAMING): Same ranking as /search, written as NDJSON (one search card per line).
+     * Ranking finishes first (bounded top-k of slim candidates); cards are then hydrated and flushed
+     * in small chunks, so wide searches and exports never hold the full result in memory.
+     * The cursor for the rows after the last line is returned in the X-Next-Cursor header.
+     */
+    @GetMapping(value = "/search/stream", produces = NDJSON)
+    public ResponseEntity<?> streamSearch(
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon,
+            @RequestParam(defaultValue = "NEARBY") String mode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ProviderService.DEFAULT_STREAM_LIMIT) int limit) {
+
+        ProviderService.StreamedSearch ranked;
+        try {
+            ranked = providerService.rankForStream(service, lat, lon, city, mode, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(Map.of("message", e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> providerService.hydrateInChunks(ranked, chunk -> {
+            try {
+                for (ProviderSearchCardDTO card : chunk) {
+                    out.write(objectMapper.writeValueAsBytes(card));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON));
+        if (ranked.nextCursor() != null) response.header(NEXT_CURSOR_HEADER, ranked.nextCursor());
+        return response.body(body);
+    }
+
+    /**
+     * MAP VIEW: Grid-clustered providers inside a bounding box (one marker per cell, not one per provider).
+     * @param zoom web-map zoom level (0-22); higher zoom means smaller cells.
+     */
+    @GetMapping("/map")
+    public ResponseEntity<?> mapView(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon,
+            @RequestParam int zoom,
+            @RequestParam(required = false) String service) {
+        try {
+            return ResponseEntity.ok(providerService.clusterMap(minLat, minLon, maxLat, maxLon, zoom, service));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
 
-        logger.info("Marketplace Search Triggered -> Mode: {}, Service: {}, City: {}, Lat: {}, Lon: {}", mode, service, city);
-        return providerService.searchWithRanking(service, lat, lon, city, mode);
+    /**
+     * TYPEAHEAD: Category / city suggestions for the search box, served from memory.
+     * @param type "category", "city" or "all" (categories first).
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "all") String type,
+            @RequestParam(defaultValue = "8") int limit) {
+
+        int max = Math.max(1, Math.min(limit, 20));
+        List<ProviderTermIndex.Suggestion> suggestions = new ArrayList<>();
+        switch (type.toLowerCase()) {
+            case "category" -> suggestions.addAll(termIndex.suggest(ProviderTermIndex.Field.CATEGORY, q, max));
+            case "city" -> suggestions.addAll(termIndex.suggest(ProviderTermIndex.Field.CITY, q, max));
+            case "all" -> {
+                suggestions.addAll(termIndex.suggest(ProviderTermIndex.Field.CATEGORY, q, max));
+                suggestions.addAll(termIndex.suggest(ProviderTermIndex.Field.CITY, q, max - suggestions.size()));
+            }
+            default -> {
+                return ResponseEntity.badRequest().body(Map.of("message", "type must be category, city or all"));
+            }
+        }
+        return ResponseEntity.ok(suggestions);
     }
 
     /**
@@ -83,12 +208,12 @@ public class ProviderController {
 
             // 2. Upload to S3
             String photoUrl = s3Service.uploadFile(file, id, "provider_profile");
-            provider.setProfilePhotoUrl(photoUrl);
 
-            // 3. Save the updated provider record
-            Provider updated = repository.save(provider);
+            // 3. Point the provider record at the new photo (only this field is written)
+            Optional<Provider> updated = profileService.update(id, new Update().set("profilePhotoUrl", photoUrl));
+            if (updated.isEmpty()) return ResponseEntity.notFound().build();
             logger.info("Profile photo updated for provider: {}", id);
-            return ResponseEntity.ok(updated);
+            return ResponseEntity.ok(updated.get());
         } catch (IOException e) {
             logger.error("Photo upload failed for provider {}: ", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Photo upload failed.");
@@ -104,21 +229,19 @@ public class ProviderController {
             @PathVariable String id,
             @RequestParam("file") MultipartFile file) {
 
-        Optional<Provider> providerOpt = repository.findById(id);
-        if (providerOpt.isEmpty()) return ResponseEntity.notFound().build();
-
-        Provider provider = providerOpt.get();
+        if (!repository.existsById(id)) return ResponseEntity.notFound().build();
 
         try {
             // Upload to S3 under 'portfolio' subfolder
             String photoUrl = s3Service.uploadFile(file, id, "portfolio");
 
             // Add to the list
-            provider.getPortfolioPhotos().add(photoUrl);
-
-            Provider updated = repository.save(provider);
-            logger.info("Portfolio photo added to provider: {}", id);
-            return ResponseEntity.ok(updated);
+            return profileService.update(id, new Update().push("portfolioPhotos", photoUrl))
+                    .map(updated -> {
+                        logger.info("Portfolio photo added to provider: {}", id);
+                        return ResponseEntity.ok(updated);
+                    })
+                    .orElse(ResponseEntity.notFound().build());
         } catch (IOException e) {
             logger.error("Portfolio upload failed: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -134,21 +257,19 @@ public class ProviderController {
             @PathVariable String id,
             @RequestParam("url") String url) {
 
-        Optional<Provider> providerOpt = repository.findById(id);
-        if (providerOpt.isEmpty()) return ResponseEntity.notFound().build();
-
-        Provider provider = providerOpt.get();
+        if (!repository.existsById(id)) return ResponseEntity.notFound().build();
 
         try {
             // 1. Delete from S3 storage
             s3Service.deleteFile(url);
 
-            // 2. Remove from the local list in MongoDB
-            provider.getPortfolioPhotos().remove(url);
-
-            Provider updated = repository.save(provider);
-            logger.info("Portfolio photo deleted for provider: {}", id);
-            return ResponseEntity.ok(updated);
+            // 2. Remove from the list in MongoDB
+            return profileService.update(id, new Update().pull("portfolioPhotos", url))
+                    .map(updated -> {
+                        logger.info("Portfolio photo deleted for provider: {}", id);
+                        return ResponseEntity.ok(updated);
+                    })
+                    .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             logger.error("Failed to delete portfolio photo: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -162,8 +283,12 @@ public class ProviderController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Trust counters are server-maintained: the payload's stats are ignored and the stored ones are never
+     * rewritten here (see ProviderProfileService).
+     */
     @PostMapping
     public Provider saveProvider(@RequestBody Provider provider) {
-        return repository.save(provider);
+        return profileService.save(provider);
     }
-}
\ No newline at end of file
+}
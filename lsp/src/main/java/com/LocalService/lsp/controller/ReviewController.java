@@ -2,6 +2,7 @@ package com.LocalService.lsp.controller;
 
 import com.LocalService.lsp.model.Review;
 import com.LocalService.lsp.repository.ReviewRepository;
+import com.LocalService.lsp.service.ProviderStatsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +22,9 @@ public class ReviewController {
     @Autowired
     private ReviewRepository reviewRepository;
 
+    @Autowired
+    private ProviderStatsService providerStatsService;
+
     /**
      * Fetch all reviews for a specific provider (used on Provider Profile page)
      */
@@ -50,6 +54,7 @@ public class ReviewController {
         review.setCreatedAt(LocalDateTime.now());
 
         Review savedReview = reviewRepository.save(review);
+        providerStatsService.recordReview(savedReview.getProviderId(), savedReview.getRating());
 
         // FIXED: Now correctly logging the generated Review ID
         logger.info("Review saved successfully. ID: {}", savedReview.getId());
@@ -64,6 +69,8 @@ public class ReviewController {
     public Review addReviewLegacy(@PathVariable String providerId, @RequestBody Review review) {
         review.setProviderId(providerId);
         review.setCreatedAt(LocalDateTime.now());
-        return reviewRepository.save(review);
+        Review savedReview = reviewRepository.save(review);
+        providerStatsService.recordReview(providerId, savedReview.getRating());
+        return savedReview;
     }
 }
\ No newline at end of file
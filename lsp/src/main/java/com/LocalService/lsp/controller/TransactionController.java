@@ -2,20 +2,24 @@ package com.LocalService.lsp.controller;
 
 import com.LocalService.lsp.model.Transaction;
 import com.LocalService.lsp.repository.TransactionRepository;
+import com.LocalService.lsp.service.IdempotencyService;
+import com.LocalService.lsp.service.TransactionEventBroadcaster;
+import com.LocalService.lsp.service.TransactionHistoryService;
+import com.LocalService.lsp.service.TransactionStateMachine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -27,118 +31,136 @@ public class TransactionController {
     @Autowired
     private TransactionRepository transactionRepository;
 
-    /**
-     * SSE Registry: Maps User IDs to lists of emitters.
-     * Thread-safe collection to support multiple concurrent sessions (multi-tab testing).
-     */
-    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    @Autowired
+    private TransactionStateMachine transactionStateMachine;
+
+    @Autowired
+    private TransactionHistoryService transactionHistoryService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransactionEventBroadcaster eventBroadcaster;
 
     /**
      * SSE Stream Endpoints
      * These allow the React frontend (EventSource) to "subscribe" to transaction updates.
+     * EventSource sends Last-Event-ID on its own when it reconnects; only the missed events are replayed.
      */
     @GetMapping(value = "/customer/{customerId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamToCustomer(@PathVariable String customerId) {
+    public SseEmitter streamToCustomer(@PathVariable String customerId,
+                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
         logger.info("Stream req received from customer");
-        SseEmitter emitter = new SseEmitter(1800_000L); // 30-minute timeout
-        addEmitter(customerId, emitter);
-        emitter.onCompletion(() -> removeEmitter(customerId, emitter));
-        emitter.onTimeout(() -> removeEmitter(customerId, emitter));
-        return emitter;
+        return eventBroadcaster.subscribe(customerId, lastEventId);
     }
 
     @GetMapping(value = "/provider/{providerId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamToProvider(@PathVariable String providerId) {
-        logger.info("Stream req received from customer");
-        SseEmitter emitter = new SseEmitter(1800_000L);
-        addEmitter(providerId, emitter);
-        emitter.onCompletion(() -> removeEmitter(providerId, emitter));
-        emitter.onTimeout(() -> removeEmitter(providerId, emitter));
-        return emitter;
-    }
-
-    private void addEmitter(String id, SseEmitter emitter) {
-        emitters.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>()).add(emitter);
-        logger.info("SSE Session opened for: {}. Total Active: {}", id, emitters.get(id).size());
-    }
-
-    private void removeEmitter(String id, SseEmitter emitter) {
-        List<SseEmitter> userEmitters = emitters.get(id);
-        if (userEmitters != null) {
-            userEmitters.remove(emitter);
-            if (userEmitters.isEmpty()) emitters.remove(id);
-        }
+    public SseEmitter streamToProvider(@PathVariable String providerId,
+                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("Stream req received from provider");
+        return eventBroadcaster.subscribe(providerId, lastEventId);
     }
 
     /**
-     * Real-time Broadcast: Pushes the updated transaction object to the relevant parties.
+     * Real-time Broadcast: Pushes the updated transaction object to the relevant parties
+     * (directly, or via the change stream when running clustered - see TransactionEventBroadcaster).
      */
     private void broadcast(Transaction tx) {
-        sendUpdate(tx.getProviderId(), tx);
-        sendUpdate(tx.getCustomerId(), tx);
+        eventBroadcaster.publish(tx);
     }
 
-    private void sendUpdate(String id, Transaction tx) {
-        List<SseEmitter> userEmitters = emitters.get(id);
-        if (userEmitters != null) {
-            for (SseEmitter emitter : userEmitters) {
-                try {
-                    // event name "PAYMENT_UPDATE" must match frontend .addEventListener('PAYMENT_UPDATE')
-                    emitter.send(SseEmitter.event().name("PAYMENT_UPDATE").data(tx));
-                } catch (IOException e) {
-                    removeEmitter(id, emitter);
-                }
-            }
+    /**
+     * Retry-safe with an Idempotency-Key header: a repeated request gets the original transaction back
+     * (marked Idempotent-Replayed: true) instead of creating and broadcasting a second one.
+     * The transaction is inserted under the key's effect id, so even a re-run after a takeover cannot create a
+     * second payment. An unreadable stored response is a server fault and surfaces as 500.
+     */
+    @PostMapping("/initiate")
+    public ResponseEntity<?> initiate(@RequestBody Transaction transaction,
+                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        logger.info("payment initiate request received");
+        if (idempotencyKey == null) return ResponseEntity.ok(createTransaction(transaction));
+        try {
+            IdempotencyService.Outcome<Transaction> outcome = idempotencyService.execute("transactions.initiate",
+                    idempotencyKey, transaction, Transaction.class, effectId -> createTransaction(transaction, effectId));
+            return ResponseEntity.ok()
+                    .header("Idempotent-Replayed", String.valueOf(outcome.replayed()))
+                    .body(outcome.value());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
         }
     }
 
-    @PostMapping("/initiate")
-    public ResponseEntity<Transaction> initiate(@RequestBody Transaction transaction) {
-        logger.info("payment initiate request received");
-        transaction.setStatus("INITIATED");
+    private Transaction createTransaction(Transaction transaction) {
+        transaction.setStatus(TransactionStateMachine.INITIATED);
         transaction.setCreatedAt(LocalDateTime.now());
         transaction.setBilled(false);
         Transaction saved = transactionRepository.save(transaction);
         broadcast(saved);
-        return ResponseEntity.ok(saved);
+        return saved;
+    }
+
+    /**
+     * Idempotent variant: an earlier attempt of the same key already inserted {effectId}, so that is returned
+     * (and not broadcast again) instead of a second payment.
+     */
+    private Transaction createTransaction(Transaction transaction, String effectId) {
+        transaction.setId(effectId);
+        transaction.setStatus(TransactionStateMachine.INITIATED);
+        transaction.setCreatedAt(LocalDateTime.now());
+        transaction.setBilled(false);
+        try {
+            Transaction saved = transactionRepository.insert(transaction);
+            broadcast(saved);
+            return saved;
+        } catch (DuplicateKeyException e) {
+            logger.warn("Payment {} already initiated by an earlier attempt of its Idempotency-Key", effectId);
+            return transactionRepository.findById(effectId).orElseThrow(() -> e);
+        }
     }
 
     @PutMapping("/{id}/confirm-payment")
-    public ResponseEntity<Transaction> confirmPayment(@PathVariable String id) {
-        return transactionRepository.findById(id).map(t -> {
-            t.setStatus("CUSTOMER_CONFIRMED");
-            Transaction saved = transactionRepository.save(t);
-            broadcast(saved); // Triggers Provider Alert
-            return ResponseEntity.ok(saved);
-        }).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> confirmPayment(@PathVariable String id) {
+        try {
+            return transactionStateMachine.confirmPayment(id).map(saved -> {
+                broadcast(saved); // Triggers Provider Alert
+                return ResponseEntity.ok(saved);
+            }).orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
     }
 
     @PutMapping("/{id}/verify")
-    public ResponseEntity<Transaction> verifyTransaction(@PathVariable String id) {
-        return transactionRepository.findById(id).map(t -> {
-            t.setStatus("COMPLETED");
-            Transaction saved = transactionRepository.save(t);
-            broadcast(saved); // Triggers Customer Handshake/Review Popup
-            return ResponseEntity.ok(saved);
-        }).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> verifyTransaction(@PathVariable String id) {
+        try {
+            return transactionStateMachine.complete(id).map(saved -> {
+                broadcast(saved); // Triggers Customer Handshake/Review Popup
+                return ResponseEntity.ok(saved);
+            }).orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
     }
+
     @PutMapping("/{id}/reject")
-    public ResponseEntity<Transaction> rejectTransaction(
+    public ResponseEntity<?> rejectTransaction(
             @PathVariable String id,
             @RequestBody(required = false) Map<String, String> payload
     ) {
-        return transactionRepository.findById(id).map(t -> {
-            t.setStatus("REJECTED");
-
-            // Optional: store rejection reason (future-proof)
-            if (payload != null && payload.containsKey("reason")) {
-                t.setRejectionReason(payload.get("reason"));
-            }
-
-            Transaction saved = transactionRepository.save(t);
-            broadcast(saved); // 🔔 notify customer in real-time
-            return ResponseEntity.ok(saved);
-        }).orElse(ResponseEntity.notFound().build());
+        // Optional: store rejection reason (future-proof)
+        String reason = payload != null ? payload.get("reason") : null;
+        try {
+            return transactionStateMachine.reject(id, reason).map(saved -> {
+                broadcast(saved); // 🔔 notify customer in real-time
+                return ResponseEntity.ok(saved);
+            }).orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
     }
 
 
@@ -151,4 +173,39 @@ public class TransactionController {
     public List<Transaction> getByProvider(@PathVariable String providerId) {
         return transactionRepository.findByProviderId(providerId);
     }
+
+    /**
+     * Paged History: newest first, keyset-paginated, slim rows.
+     * Pass nextCursor back as ?cursor= for the next page. Optional filters: status, from (inclusive), to (exclusive).
+     */
+    @GetMapping("/customer/{customerId}/history")
+    public ResponseEntity<?> getCustomerHistory(
+            @PathVariable String customerId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + TransactionHistoryService.DEFAULT_PAGE_SIZE) int size) {
+        return history(TransactionHistoryService.Party.CUSTOMER, customerId, status, from, to, cursor, size);
+    }
+
+    @GetMapping("/provider/{providerId}/history")
+    public ResponseEntity<?> getProviderHistory(
+            @PathVariable String providerId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + TransactionHistoryService.DEFAULT_PAGE_SIZE) int size) {
+        return history(TransactionHistoryService.Party.PROVIDER, providerId, status, from, to, cursor, size);
+    }
+
+    private ResponseEntity<?> history(TransactionHistoryService.Party party, String userId, String status,
+                                      LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        try {
+            return ResponseEntity.ok(transactionHistoryService.history(party, userId, status, from, to, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
 }
\ No newline at end of file
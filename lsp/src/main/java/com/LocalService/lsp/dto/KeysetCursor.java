@@ -0,0 +1,41 @@
+package com.LocalService.lsp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor: (sort value, document id) of the last item on a page.
+ * Encoded as URL-safe Base64 so clients treat it as a token rather than parsing it.
+ * @param context optional state resolved on the first page that later pages must reuse
+ *                (e.g. the adaptive search radius); null when unused.
+ */
+public record KeysetCursor(String sortValue, String id, String context) {
+
+    private static final String SEPARATOR = "|";
+
+    public KeysetCursor(String sortValue, String id) {
+        this(sortValue, id, null);
+    }
+
+    public String encode() {
+        String raw = sortValue + SEPARATOR + id + (context != null ? SEPARATOR + context : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by encode().
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length < 2 || parts.length > 3) throw new IllegalArgumentException("Malformed cursor");
+            for (String part : parts) {
+                if (part.isEmpty()) throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new KeysetCursor(parts[0], parts[1], parts.length == 3 ? parts[2] : null);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.LocalService.lsp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One map marker: a grid cell's provider count, their centroid, and the best-rated provider in it.
+ * A count of 1 is a single provider at its own position.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MapClusterDTO {
+    private double latitude;
+    private double longitude;
+    private long count;
+    private String topProviderId;
+    private String topProviderName;
+    private Double topProviderRating;
+}
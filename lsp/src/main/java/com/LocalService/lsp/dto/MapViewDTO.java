@@ -0,0 +1,21 @@
+package com.LocalService.lsp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Clustered providers for a map viewport.
+ * cellDegrees is the grid size used at this zoom, so the client can tell clusters from single pins.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MapViewDTO {
+    private int zoom;
+    private double cellDegrees;
+    private long totalProviders;
+    private List<MapClusterDTO> clusters;
+}
@@ -0,0 +1,71 @@
+package com.LocalService.lsp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Lightweight search result card for the list view.
+ * Carries only what the result list renders; the full profile (description, portfolio, contact and
+ * social links, UPI id, coordinates) is fetched from GET /api/providers/{id} when a card is opened.
+ */
+@Data
+public class ProviderSearchCardDTO {
+
+    /**
+     * Provider fields read from Mongo. Hydration projects exactly these, so heavy fields never leave the database.
+     */
+    public static final String[] PROJECTED_FIELDS = {
+            "name", "serviceCategory", "city", "location", "price", "workType", "serviceDeliveryType", "profilePhotoUrl",
+            "coordinates"
+    };
+
+    private String id;
+    private String name;
+    private List<String> serviceCategory;
+    private String city;
+    private String location;
+    private Double price;
+    private String workType;
+    private String serviceDeliveryType;
+    private String profilePhotoUrl;
+
+    // Ranking data (from the denormalized stats and the scorer)
+    private long reviewCount;
+    private long completedOrders;
+    private Double averageRating;
+    // Always measured from the caller's own GPS position. The order (and searchScore) of a paged GPS search is
+    // computed from the center of the caller's geohash cell (lsp.search.cache.cell-precision, ~1.2 km x 0.6 km at 6)
+    // so callers in one cell share a cached ranking: a provider just across the close-range boundary may rank
+    // as if it were just inside it. The NDJSON stream is ranked from the exact position.
+    private Double distanceMeters; // null for non-geographic searches
+    private Double searchScore;
+
+    // [longitude, latitude]: server-side only, to re-measure distanceMeters for each caller of a shared page
+    @JsonIgnore
+    private double[] coordinates;
+
+    /**
+     * Copy of this card with another distance. Cached cards are shared, so they are never mutated.
+     */
+    public ProviderSearchCardDTO withDistanceMeters(Double distanceMeters) {
+        ProviderSearchCardDTO copy = new ProviderSearchCardDTO();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setServiceCategory(serviceCategory);
+        copy.setCity(city);
+        copy.setLocation(location);
+        copy.setPrice(price);
+        copy.setWorkType(workType);
+        copy.setServiceDeliveryType(serviceDeliveryType);
+        copy.setProfilePhotoUrl(profilePhotoUrl);
+        copy.setReviewCount(reviewCount);
+        copy.setCompletedOrders(completedOrders);
+        copy.setAverageRating(averageRating);
+        copy.setDistanceMeters(distanceMeters);
+        copy.setSearchScore(searchScore);
+        copy.setCoordinates(coordinates);
+        return copy;
+    }
+}
@@ -0,0 +1,49 @@
+package com.LocalService.lsp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Search response: a page of cards plus optional diagnostics.
+ * profile (explain=true) and facets (facets=true) are only present when requested, so regular responses
+ * keep the plain CursorPage shape.
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class ProviderSearchPage extends CursorPage<ProviderSearchCardDTO> {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private SearchProfileDTO profile;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private SearchFacetsDTO facets;
+
+    public ProviderSearchPage(List<ProviderSearchCardDTO> items, String nextCursor) {
+        super(items, nextCursor, nextCursor != null);
+    }
+
+    /**
+     * Copy of this page carrying the given facets. Cached pages are shared, so they are never mutated.
+     */
+    public ProviderSearchPage withFacets(SearchFacetsDTO facets) {
+        ProviderSearchPage copy = new ProviderSearchPage(getItems(), getNextCursor());
+        copy.setProfile(profile);
+        copy.setFacets(facets);
+        return copy;
+    }
+
+    /**
+     * Copy of this page with other cards (same cursor, profile and facets).
+     */
+    public ProviderSearchPage withItems(List<ProviderSearchCardDTO> items) {
+        ProviderSearchPage copy = new ProviderSearchPage(items, getNextCursor());
+        copy.setProfile(profile);
+        copy.setFacets(facets);
+        return copy;
+    }
+}
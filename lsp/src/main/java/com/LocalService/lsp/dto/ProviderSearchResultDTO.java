@@ -1,18 +0,0 @@
-package com.LocalService.lsp.dto;
-
-import com.LocalService.lsp.model.Provider;
-import lombok.Data;
-import lombok.EqualsAndHashCode;
-
-/**
- * Data Transfer Object for Aggregated Search Results.
- * Includes counts calculated on the database side.
- */
-@Data
-@EqualsAndHashCode(callSuper = true)
-public class ProviderSearchResultDTO extends Provider {
-    private long reviewCount;
-    private long completedOrders;
-    private Double averageRating;
-    private Double searchScore; // Added to capture the final weighted score
-}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.LocalService.lsp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Facet counts over every provider eligible for a search (not just the current page), most common first.
+ */
+@Data
+public class SearchFacetsDTO {
+
+    private List<Bucket> byCity = new ArrayList<>();
+    private List<Bucket> byCategory = new ArrayList<>();
+    private List<Bucket> byDeliveryType = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        private String value;
+        private long count;
+    }
+}
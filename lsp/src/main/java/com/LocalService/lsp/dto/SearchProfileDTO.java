@@ -0,0 +1,40 @@
+package com.LocalService.lsp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where a search spent its time.
+ * stages come from Mongo's executionStats (candidate pipeline, then the hydration lookup);
+ * the *Millis fields are wall-clock timings of the Java phases of the same request.
+ */
+@Data
+public class SearchProfileDTO {
+
+    private List<Stage> stages = new ArrayList<>();
+    private long candidatesScanned;
+    private Double radiusMeters;      // $geoNear radius the adaptive search settled on; null for text searches
+    private double candidateMillis;   // streaming + scoring into the top-k heap
+    private double hydrateMillis;     // loading cards for the winners
+    private double totalMillis;
+
+    /**
+     * One plan node or pipeline stage. Counters Mongo does not report for a stage are null.
+     * @param stage plan stage (IXSCAN, FETCH, GEO_NEAR_2DSPHERE...) or pipeline operator ($project...),
+     *              prefixed with the query it belongs to, e.g. "candidates:IXSCAN".
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stage {
+        private String stage;
+        private Long returned;        // nReturned
+        private Long docsExamined;
+        private Long keysExamined;
+        private Long executionTimeMillis;
+    }
+}
@@ -0,0 +1,30 @@
+package com.LocalService.lsp.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Slim transaction row for the payment history lists.
+ * Leaves out admin / billing fields and free-text notes; the full document comes with the SSE updates.
+ */
+@Data
+public class TransactionSummaryDTO {
+
+    /**
+     * Transaction fields read from Mongo for a history page (besides _id).
+     */
+    public static final String[] PROJECTED_FIELDS = {
+            "providerId", "providerName", "customerId", "customerName", "amount", "status", "rejectionReason", "createdAt"
+    };
+
+    private String id;
+    private String providerId;
+    private String providerName;
+    private String customerId;
+    private String customerName;
+    private Double amount;
+    private String status;
+    private String rejectionReason;
+    private LocalDateTime createdAt;
+}
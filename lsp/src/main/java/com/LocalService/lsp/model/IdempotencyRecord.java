@@ -0,0 +1,45 @@
+package com.LocalService.lsp.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * IdempotencyRecord Model
+ * One document per Idempotency-Key (per endpoint scope):
+ * 1. id: "{scope}:{key}", so the built-in unique _id index rejects a second claim of the same key.
+ * 2. fingerprint: SHA-256 of the request body; a reused key with a different body is refused.
+ * 3. status: IN_PROGRESS while the first request runs, COMPLETED once responseBody holds its result.
+ * 4. createdAt: drives the TTL index that forgets keys after IdempotencyService.RETENTION.
+ * 5. attempt: fencing token, bumped by every takeover; only the current attempt may complete the record.
+ */
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+    @Id
+    private String id;
+    private String fingerprint;
+    private String status;
+    private String responseBody;
+    private LocalDateTime createdAt;
+    private Long attempt;
+
+    public IdempotencyRecord() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getFingerprint() { return fingerprint; }
+    public void setFingerprint(String fingerprint) { this.fingerprint = fingerprint; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getResponseBody() { return responseBody; }
+    public void setResponseBody(String responseBody) { this.responseBody = responseBody; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public Long getAttempt() { return attempt; }
+    public void setAttempt(Long attempt) { this.attempt = attempt; }
+}
@@ -1,5 +1,6 @@
 package com.LocalService.lsp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -46,6 +47,17 @@ public class Provider {
     private String twitterLink;
     private String websiteLink;
 
+    // Denormalized review / order counters (server-maintained, see ProviderStatsService)
+    private ProviderStats stats = new ProviderStats();
+
+    // Lowercase / ASCII-folded shadows of serviceCategory and city for exact-match index lookups.
+    // Derived on every save by ProviderSearchKeysListener; never part of the API payload.
+    // Indexed via config.MongoIndexRegistry.
+    @JsonIgnore
+    private List<String> serviceCategoryKeys = new ArrayList<>();
+    @JsonIgnore
+    private String cityKey;
+
     public Provider() {}
 
     // Getters and Setters
@@ -93,4 +105,10 @@ public class Provider {
     public void setTwitterLink(String twitterLink) { this.twitterLink = twitterLink; }
     public String getWebsiteLink() { return websiteLink; }
     public void setWebsiteLink(String websiteLink) { this.websiteLink = websiteLink; }
+    public ProviderStats getStats() { return stats; }
+    public void setStats(ProviderStats stats) { this.stats = stats; }
+    public List<String> getServiceCategoryKeys() { return serviceCategoryKeys; }
+    public void setServiceCategoryKeys(List<String> serviceCategoryKeys) { this.serviceCategoryKeys = serviceCategoryKeys; }
+    public String getCityKey() { return cityKey; }
+    public void setCityKey(String cityKey) { this.cityKey = cityKey; }
 }
\ No newline at end of file
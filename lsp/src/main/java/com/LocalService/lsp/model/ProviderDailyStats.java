@@ -0,0 +1,57 @@
+package com.LocalService.lsp.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * ProviderDailyStats Model - Insights Rollup
+ * One tiny document per provider per day, maintained with atomic $inc upserts as events are recorded:
+ * 1. id: "{providerId}:{day}", so concurrent first writes of a day collapse into one document.
+ * 2. day: ISO date (yyyy-MM-dd, server time zone); sorts and range-filters as a string.
+ * 3. views / leads: recorded profile views and (deduplicated) leads that day.
+ * 4. completedOrders / turnover: transactions created that day that reached COMPLETED, and their amounts.
+ * 5. viewerSketch / sketchVersion: HyperLogLog registers of the day's viewer sessions, and the version that
+ *    guards their compare-and-set updates. Only read when unique viewers are asked for.
+ */
+@Document(collection = "provider_daily_stats")
+public class ProviderDailyStats {
+    @Id
+    private String id;
+    private String providerId;
+    private String day;
+    private long views;
+    private long leads;
+    private long completedOrders;
+    private double turnover;
+    private byte[] viewerSketch;
+    private long sketchVersion;
+
+    public ProviderDailyStats() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getProviderId() { return providerId; }
+    public void setProviderId(String providerId) { this.providerId = providerId; }
+
+    public String getDay() { return day; }
+    public void setDay(String day) { this.day = day; }
+
+    public long getViews() { return views; }
+    public void setViews(long views) { this.views = views; }
+
+    public long getLeads() { return leads; }
+    public void setLeads(long leads) { this.leads = leads; }
+
+    public long getCompletedOrders() { return completedOrders; }
+    public void setCompletedOrders(long completedOrders) { this.completedOrders = completedOrders; }
+
+    public double getTurnover() { return turnover; }
+    public void setTurnover(double turnover) { this.turnover = turnover; }
+
+    public byte[] getViewerSketch() { return viewerSketch; }
+    public void setViewerSketch(byte[] viewerSketch) { this.viewerSketch = viewerSketch; }
+
+    public long getSketchVersion() { return sketchVersion; }
+    public void setSketchVersion(long sketchVersion) { this.sketchVersion = sketchVersion; }
+}
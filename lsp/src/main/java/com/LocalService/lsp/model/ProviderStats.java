@@ -0,0 +1,38 @@
+package com.LocalService.lsp.model;
+
+/**
+ * ProviderStats - Denormalized Trust Counters
+ * Embedded in the Provider document so the search pipeline can rank without
+ * joining the reviews and transactions collections.
+ * 1. Maintained incrementally by ProviderStatsService on review / completion writes.
+ * 2. Rebuilt from source collections by the admin backfill job.
+ */
+public class ProviderStats {
+    private long reviewCount = 0;
+    private long ratingCount = 0;     // Reviews that carried a star rating
+    private double ratingTotal = 0.0;
+    private double averageRating = 0.0;
+    private long completedOrders = 0;
+
+    public ProviderStats() {}
+
+    public ProviderStats(long reviewCount, long ratingCount, double ratingTotal, long completedOrders) {
+        this.reviewCount = reviewCount;
+        this.ratingCount = ratingCount;
+        this.ratingTotal = ratingTotal;
+        this.averageRating = ratingCount > 0 ? ratingTotal / ratingCount : 0.0;
+        this.completedOrders = completedOrders;
+    }
+
+    // Getters and Setters
+    public long getReviewCount() { return reviewCount; }
+    public void setReviewCount(long reviewCount) { this.reviewCount = reviewCount; }
+    public long getRatingCount() { return ratingCount; }
+    public void setRatingCount(long ratingCount) { this.ratingCount = ratingCount; }
+    public double getRatingTotal() { return ratingTotal; }
+    public void setRatingTotal(double ratingTotal) { this.ratingTotal = ratingTotal; }
+    public double getAverageRating() { return averageRating; }
+    public void setAverageRating(double averageRating) { this.averageRating = averageRating; }
+    public long getCompletedOrders() { return completedOrders; }
+    public void setCompletedOrders(long completedOrders) { this.completedOrders = completedOrders; }
+}
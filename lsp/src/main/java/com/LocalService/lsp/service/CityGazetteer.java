@@ -0,0 +1,120 @@
+package com.LocalService.lsp.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CityGazetteer - Offline City Name -> Centroid Lookup
+ * 1. Data: bundled resource gazetteer/in-cities.csv (canonical name, centroid, covering radius, aliases),
+ *    loaded into memory once at startup. No network geocoding on the search path.
+ * 2. Matching: names and aliases are compared as SearchKeys-normalized keys, so "Bengaluru", "bangalore"
+ *    and "BANGALORE " are the same place. Misspellings fall back to the closest key within a small
+ *    edit distance; ties between different cities are treated as unknown rather than guessed.
+ * 3. Use: city-only NEARBY searches resolve here; the centroid and radius narrow the city match with a $geoNear
+ *    (see ProviderService).
+ */
+@Service
+public class CityGazetteer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CityGazetteer.class);
+    private static final String RESOURCE = "gazetteer/in-cities.csv";
+    private static final int MIN_FUZZY_LENGTH = 5;
+
+    /**
+     * A gazetteer entry.
+     * @param key normalized canonical name; every alias of the city resolves to the same key.
+     */
+    public record City(String key, String name, double latitude, double longitude, double radiusMeters) {}
+
+    private volatile Map<String, City> byKey = Map.of();
+
+    @PostConstruct
+    void load() {
+        Map<String, City> loaded = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(RESOURCE).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                String[] cols = line.split(",", -1);
+                String key = SearchKeys.normalize(cols[0]);
+                City city = new City(key, cols[0].trim(), Double.parseDouble(cols[1]), Double.parseDouble(cols[2]),
+                        Double.parseDouble(cols[3]) * 1000);
+                loaded.put(key, city);
+                if (cols.length > 4) {
+                    for (String alias : cols[4].split(";")) {
+                        String aliasKey = SearchKeys.normalize(alias);
+                        if (aliasKey != null) loaded.putIfAbsent(aliasKey, city);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to load city gazetteer {}: {}", RESOURCE, e.getMessage());
+            return;
+        }
+        byKey = Map.copyOf(loaded);
+        logger.info("City gazetteer loaded: {} names", byKey.size());
+    }
+
+    /**
+     * Resolves a free-text city to a gazetteer entry: exact name / alias first, then the unique closest
+     * spelling within 1 edit (2 for names longer than 8 characters).
+     * @return the city, or null when unknown or ambiguous.
+     */
+    public City resolve(String text) {
+        String needle = SearchKeys.normalize(text);
+        if (needle == null) return null;
+        City exact = byKey.get(needle);
+        if (exact != null || needle.length() < MIN_FUZZY_LENGTH) return exact;
+
+        int maxEdits = needle.length() > 8 ? 2 : 1;
+        City best = null;
+        int bestDistance = maxEdits + 1;
+        boolean ambiguous = false;
+        for (Map.Entry<String, City> entry : byKey.entrySet()) {
+            int distance = editDistance(needle, entry.getKey(), maxEdits);
+            if (distance < bestDistance) {
+                best = entry.getValue();
+                bestDistance = distance;
+                ambiguous = false;
+            } else if (distance == bestDistance && best != null && !best.key().equals(entry.getValue().key())) {
+                ambiguous = true;
+            }
+        }
+        return ambiguous ? null : best;
+    }
+
+    /**
+     * Levenshtein distance, abandoning once every path exceeds the limit (returns limit + 1).
+     */
+    static int editDistance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) return limit + 1;
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) return limit + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+}
@@ -0,0 +1,75 @@
+package com.LocalService.lsp.service;
+
+/**
+ * GeoHash - Minimal geohash encoder / decoder plus great-circle distance.
+ * Used to snap jittery client coordinates to a stable cell for caching and request coalescing.
+ */
+public final class GeoHash {
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+
+    private GeoHash() {}
+
+    public static String encode(double lat, double lon, int precision) {
+        double[] latRange = {-90.0, 90.0};
+        double[] lonRange = {-180.0, 180.0};
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            double[] range = evenBit ? lonRange : latRange;
+            double value = evenBit ? lon : lat;
+            double mid = (range[0] + range[1]) / 2;
+            if (value >= mid) {
+                ch = (ch << 1) | 1;
+                range[0] = mid;
+            } else {
+                ch = ch << 1;
+                range[1] = mid;
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * @return {lat, lon} of the cell center.
+     */
+    public static double[] decodeCenter(String hash) {
+        double[] latRange = {-90.0, 90.0};
+        double[] lonRange = {-180.0, 180.0};
+        boolean evenBit = true;
+
+        for (char c : hash.toCharArray()) {
+            int cd = BASE32.indexOf(c);
+            if (cd < 0) throw new IllegalArgumentException("Invalid geohash: " + hash);
+            for (int mask = 16; mask > 0; mask >>= 1) {
+                double[] range = evenBit ? lonRange : latRange;
+                double mid = (range[0] + range[1]) / 2;
+                if ((cd & mask) != 0) range[0] = mid;
+                else range[1] = mid;
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{(latRange[0] + latRange[1]) / 2, (lonRange[0] + lonRange[1]) / 2};
+    }
+
+    /**
+     * Haversine distance in meters.
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,103 @@
+package com.LocalService.lsp.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog - Approximate Distinct Counting in Fixed Memory
+ * 1. State: 2^PRECISION one-byte registers (2 KB), each holding the longest run of leading zeros seen among
+ *    the hashes routed to it. Adding the same value twice never changes anything.
+ * 2. Merge: register-wise max, so sketches for separate days combine into the sketch of the whole range.
+ * 3. Accuracy: standard error about 1.04 / sqrt(2^PRECISION) = 2.3%; small cardinalities fall back to
+ *    linear counting and are close to exact.
+ * Not thread-safe; callers own an instance per computation.
+ */
+public final class HyperLogLog {
+
+    public static final int PRECISION = 11;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * @param bytes a sketch produced by toBytes(); null or empty reads as an empty sketch.
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) return new HyperLogLog();
+        if (bytes.length != REGISTERS) {
+            throw new IllegalArgumentException("Expected a " + REGISTERS + "-byte sketch, got " + bytes.length);
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+
+    /**
+     * @return true if the sketch changed (callers can skip persisting it otherwise).
+     */
+    public boolean add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        byte rank = (byte) Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, 64 - PRECISION + 1);
+        if (rank <= registers[index]) return false;
+        registers[index] = rank;
+        return true;
+    }
+
+    /**
+     * Folds another sketch into this one.
+     * @return true if this sketch changed.
+     */
+    public boolean merge(HyperLogLog other) {
+        boolean changed = false;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public long estimate() {
+        double sum = 0.0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+        double raw = ALPHA * REGISTERS * REGISTERS / sum;
+        if (raw <= 2.5 * REGISTERS && zeros > 0) {
+            return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 fmix64 avalanche so every bit
+     * (the register index comes from the top ones) depends on the whole input.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,249 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.IdempotencyRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.function.Function;
+
+/**
+ * IdempotencyService - Exactly-Once Effects for Retried Writes (Idempotency-Key header)
+ * 1. Claim: the first request with a key inserts an IN_PROGRESS record; the unique _id makes that insert
+ *    the single winner across threads and nodes. Only the winner runs the action.
+ * 2. Replay: later requests with the same key and body get the stored response back, with no second
+ *    write and no second broadcast. A completed record is served from a bounded in-memory LRU first,
+ *    then from the idempotency_keys collection.
+ * 3. Conflicts: the same key with a different body is refused (IllegalArgumentException); a retry that
+ *    arrives while the first attempt is still running is refused (IllegalStateException), unless that
+ *    claim is older than lsp.idempotency.lock-timeout-seconds (crashed node), in which case it is taken over.
+ * 4. Fencing: a takeover bumps the claim's attempt counter, and the result is only committed by a
+ *    compare-and-set on the attempt that ran, so a slow or stuck first attempt cannot overwrite the new one.
+ *    Because a takeover (or a lost COMPLETED write) runs the action again, the action is handed an effect id
+ *    that is the same for every attempt of a key; it must use it as the natural key of its write (e.g. the _id
+ *    of the document it inserts), so a second run finds the first run's effect instead of creating another.
+ * 5. Failure: if the action throws, the claim is released so the client can retry with the same key.
+ *    The COMPLETED write is retried a few times before it is given up.
+ * 6. Retention: a TTL index on createdAt forgets keys after RETENTION.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String COMPLETED = "COMPLETED";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int COMPLETE_ATTEMPTS = 3;
+    private static final long COMPLETE_BACKOFF_MILLIS = 100;
+
+    /** How long a key is remembered (TTL index in MongoIndexRegistry). */
+    public static final Duration RETENTION = Duration.ofHours(24);
+
+    /**
+     * @param replayed true when value is the stored result of an earlier request.
+     */
+    public record Outcome<T>(T value, boolean replayed) {}
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final Counter replays;
+    private final Duration lockTimeout;
+
+    public IdempotencyService(MongoTemplate mongoTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              @Value("${lsp.idempotency.cache.max-entries:10000}") long maxEntries,
+                              @Value("${lsp.idempotency.cache.ttl-seconds:600}") long ttlSeconds,
+                              @Value("${lsp.idempotency.lock-timeout-seconds:30}") long lockTimeoutSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.lockTimeout = Duration.ofSeconds(lockTimeoutSeconds);
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency");
+        this.replays = Counter.builder("idempotency.replays")
+                .description("Requests answered with the stored response of an earlier request")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {action} for (scope, key) and stores its result for replay.
+     * @param request the request body, fingerprinted to detect a key reused for a different request.
+     * @param responseType type of the action's result, used to read a stored response back.
+     * @param action receives the key's effect id (24 hex characters, stable across attempts) to write under.
+     * @throws IllegalArgumentException on a malformed key or a key reused with a different body.
+     * @throws IllegalStateException while the first request with this key is still running.
+     * @throws java.io.UncheckedIOException if a stored response cannot be read back (a server fault).
+     */
+    public <T> Outcome<T> execute(String scope, String key, Object request, Class<T> responseType, Function<String, T> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+        String id = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        IdempotencyRecord cached = completed.getIfPresent(id);
+        if (cached != null) return replay(cached, fingerprint, responseType);
+
+        Long attempt = claim(id, fingerprint);
+        if (attempt == null) {
+            IdempotencyRecord existing = mongoTemplate.findById(id, IdempotencyRecord.class);
+            if (existing == null) {
+                // expired or released between our insert and this read: one more attempt
+                attempt = claim(id, fingerprint);
+                if (attempt == null) throw new IllegalStateException("A request with this Idempotency-Key is in progress");
+            } else if (COMPLETED.equals(existing.getStatus())) {
+                completed.put(id, existing);
+                return replay(existing, fingerprint, responseType);
+            } else if (!fingerprint.equals(existing.getFingerprint())) {
+                throw new IllegalArgumentException("Idempotency-Key was already used with a different request");
+            } else {
+                attempt = takeOver(id, fingerprint);
+                if (attempt == null) throw new IllegalStateException("A request with this Idempotency-Key is in progress");
+            }
+        }
+
+        T result;
+        try {
+            result = action.apply(effectId(id));
+        } catch (RuntimeException | Error e) {
+            mongoTemplate.remove(ownedBy(id, attempt), IdempotencyRecord.class);
+            throw e;
+        }
+        complete(id, attempt, result);
+        return new Outcome<>(result, false);
+    }
+
+    /**
+     * Commits the result under the attempt that produced it, retrying transient failures.
+     * If every try fails the claim stays IN_PROGRESS: retries get 409 until the lock timeout, then a takeover
+     * re-runs the action, which the effect id turns into a lookup of this run's effect.
+     */
+    private <T> void complete(String id, long attempt, T result) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize idempotent response for {}: {}", id, e.getMessage());
+            return;
+        }
+        Update done = new Update().set("status", COMPLETED).set("responseBody", body).set("createdAt", LocalDateTime.now());
+        for (int i = 1; i <= COMPLETE_ATTEMPTS; i++) {
+            try {
+                IdempotencyRecord record = mongoTemplate.findAndModify(ownedBy(id, attempt), done,
+                        FindAndModifyOptions.options().returnNew(true), IdempotencyRecord.class);
+                if (record == null) {
+                    logger.warn("Idempotency claim {} was taken over; not storing the result of attempt {}", id, attempt);
+                } else {
+                    completed.put(id, record);
+                }
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Could not store idempotent response for {} (try {}/{}): {}", id, i, COMPLETE_ATTEMPTS, e.getMessage());
+            }
+            try {
+                Thread.sleep(COMPLETE_BACKOFF_MILLIS * i);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the attempt number of the new claim, or null if the key is already claimed.
+     */
+    private Long claim(String id, String fingerprint) {
+        IdempotencyRecord claim = new IdempotencyRecord();
+        claim.setId(id);
+        claim.setFingerprint(fingerprint);
+        claim.setStatus(IN_PROGRESS);
+        claim.setCreatedAt(LocalDateTime.now());
+        claim.setAttempt(1L);
+        try {
+            mongoTemplate.insert(claim);
+            return 1L;
+        } catch (DuplicateKeyException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Re-claims an IN_PROGRESS record whose owner has been silent longer than the lock timeout, bumping its
+     * attempt so the previous owner can no longer complete it.
+     * @return the new attempt number, or null if the claim is not stale.
+     */
+    private Long takeOver(String id, String fingerprint) {
+        Query stale = new Query(Criteria.where("_id").is(id).and("status").is(IN_PROGRESS)
+                .and("fingerprint").is(fingerprint)
+                .and("createdAt").lt(LocalDateTime.now().minus(lockTimeout)));
+        IdempotencyRecord taken = mongoTemplate.findAndModify(stale,
+                new Update().set("createdAt", LocalDateTime.now()).inc("attempt", 1),
+                FindAndModifyOptions.options().returnNew(true), IdempotencyRecord.class);
+        if (taken == null) return null;
+        logger.warn("Took over stale idempotency claim {} (attempt {})", id, taken.getAttempt());
+        return taken.getAttempt();
+    }
+
+    private static Query ownedBy(String id, long attempt) {
+        return new Query(Criteria.where("_id").is(id).and("status").is(IN_PROGRESS).and("attempt").is(attempt));
+    }
+
+    /**
+     * Deterministic 24-hex id for the effect of (scope, key), a valid ObjectId so it maps like generated ids.
+     */
+    private static String effectId(String id) {
+        return HexFormat.of().formatHex(sha256(id.getBytes(StandardCharsets.UTF_8)), 0, 12);
+    }
+
+    private <T> Outcome<T> replay(IdempotencyRecord record, String fingerprint, Class<T> responseType) {
+        if (!fingerprint.equals(record.getFingerprint())) {
+            throw new IllegalArgumentException("Idempotency-Key was already used with a different request");
+        }
+        replays.increment();
+        try {
+            return new Outcome<>(objectMapper.readValue(record.getResponseBody(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Stored response for " + record.getId() + " is unreadable", e);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            return HexFormat.of().formatHex(sha256(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Cannot fingerprint request", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is required of every JVM", e);
+        }
+    }
+}
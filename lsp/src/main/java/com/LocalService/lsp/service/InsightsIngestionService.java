@@ -0,0 +1,122 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.LeadEvent;
+import com.LocalService.lsp.model.ProfileView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * InsightsIngestionService - Write-Behind Ingestion of Profile Views and Leads
+ * 1. Requests only enqueue: views and leads are fire-and-forget analytics pings, so they are written in
+ *    batches (one unordered bulk insert per flush, then one rollup bulk per flush) by a WriteBehindQueue each.
+ *    The two steps fail separately: a failed insert loses the batch (insights.{views|leads}.failed), while a
+ *    failed rollup keeps the stored events and only counts insights.rollup.failed; the rollup then undercounts
+ *    until POST /api/admin/jobs/provider-daily-stats/rebuild repairs it from the raw events.
+ * 2. Backpressure: lsp.insights.ingest.overflow-policy decides what a full queue does (DROP or CALLER_RUNS).
+ * 3. Lead Deduplication: the same customer / contact method / provider counts once per DEDUP_WINDOW.
+ *    Checked against an in-memory window instead of reading the provider's recent leads, so it is per node
+ *    and starts empty after a restart. A lead the full queue drops does not hold its key.
+ * 4. Shutdown: queued events are flushed before the MongoTemplate goes away.
+ */
+@Service
+public class InsightsIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InsightsIngestionService.class);
+    private static final Duration DEDUP_WINDOW = Duration.ofHours(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final ProviderDailyStatsService dailyStatsService;
+    private final WriteBehindQueue<ProfileView> views;
+    private final WriteBehindQueue<LeadEvent> leads;
+    private final Cache<String, Boolean> recentLeads;
+    private final Duration shutdownTimeout;
+
+    public InsightsIngestionService(MongoTemplate mongoTemplate, ProviderDailyStatsService dailyStatsService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${lsp.insights.ingest.capacity:10000}") int capacity,
+                                    @Value("${lsp.insights.ingest.batch-size:500}") int batchSize,
+                                    @Value("${lsp.insights.ingest.flush-interval-ms:1000}") long flushIntervalMs,
+                                    @Value("${lsp.insights.ingest.overflow-policy:DROP}") WriteBehindQueue.OverflowPolicy overflowPolicy,
+                                    @Value("${lsp.insights.ingest.shutdown-timeout-seconds:10}") long shutdownTimeoutSeconds,
+                                    @Value("${lsp.insights.lead-dedup.max-entries:100000}") long dedupMaxEntries) {
+        this.mongoTemplate = mongoTemplate;
+        this.dailyStatsService = dailyStatsService;
+        Duration flushInterval = Duration.ofMillis(flushIntervalMs);
+        this.views = new WriteBehindQueue<>("insights.views", capacity, batchSize, flushInterval, overflowPolicy,
+                this::writeViews, meterRegistry);
+        this.leads = new WriteBehindQueue<>("insights.leads", capacity, batchSize, flushInterval, overflowPolicy,
+                this::writeLeads, meterRegistry);
+        this.recentLeads = Caffeine.newBuilder()
+                .maximumSize(dedupMaxEntries)
+                .expireAfterWrite(DEDUP_WINDOW)
+                .build();
+        this.shutdownTimeout = Duration.ofSeconds(shutdownTimeoutSeconds);
+    }
+
+    public void recordView(String providerId, String sessionId) {
+        views.offer(new ProfileView(providerId, sessionId));
+    }
+
+    /**
+     * @return false if the same customer already contacted this provider the same way within DEDUP_WINDOW.
+     */
+    public boolean recordLead(LeadEvent lead) {
+        String key = lead.getProviderId() + "|" + lead.getCustomerId() + "|" + lead.getContactMethod();
+        if (recentLeads.asMap().putIfAbsent(key, Boolean.TRUE) != null) return false;
+
+        if (lead.getTimestamp() == null) {
+            lead.setTimestamp(LocalDateTime.now());
+        }
+        if (!leads.offer(lead)) {
+            // shed by a full queue (counted as insights.leads.dropped): release the key so a retry can count
+            recentLeads.invalidate(key);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Flushing insights ingestion queues ({} views, {} leads pending)", views.depth(), leads.depth());
+        views.close(shutdownTimeout);
+        leads.close(shutdownTimeout);
+    }
+
+    private void writeViews(List<ProfileView> batch) {
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProfileView.class).insert(batch).execute();
+        try {
+            dailyStatsService.recordViews(batch);
+        } catch (RuntimeException e) {
+            rollupFailed("views", batch.size(), e);
+        }
+    }
+
+    private void writeLeads(List<LeadEvent> batch) {
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LeadEvent.class).insert(batch).execute();
+        try {
+            dailyStatsService.recordLeads(batch);
+        } catch (RuntimeException e) {
+            rollupFailed("leads", batch.size(), e);
+        }
+    }
+
+    /**
+     * The batch is already stored, so it must not be counted as failed by the queue; only the rollup drifted.
+     */
+    private void rollupFailed(String field, int events, RuntimeException e) {
+        dailyStatsService.rollupFailed(field, events);
+        logger.warn("Stored {} {} but the daily stats rollup failed ({}); run the provider-daily-stats rebuild to repair",
+                events, field, e.getMessage());
+    }
+}
@@ -0,0 +1,79 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.dto.CursorPage;
+import com.LocalService.lsp.dto.KeysetCursor;
+import com.LocalService.lsp.model.LeadEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LeadHistoryService - Paged Lead Activity
+ * 1. Order: newest first, (timestamp desc, _id desc); _id breaks ties between leads of the same millisecond.
+ * 2. Keyset Paging: the cursor is the (timestamp, _id) of the last row, so every page costs the same.
+ * 3. Filters: optional timestamp window [from, to); leads without a timestamp are left out.
+ * 4. Index: {providerId: 1, timestamp: -1, _id: -1} (MongoIndexRegistry) serves the filter, the sort and
+ *    the cursor bound.
+ */
+@Service
+public class LeadHistoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * @param from optional inclusive lower timestamp bound.
+     * @param to optional exclusive upper timestamp bound.
+     * @param cursor nextCursor of the previous page; null for the first page.
+     * @param size page size, clamped to [1, MAX_PAGE_SIZE].
+     * @throws IllegalArgumentException on a malformed cursor.
+     */
+    public CursorPage<LeadEvent> history(String providerId, LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<Criteria> filters = new ArrayList<>();
+        filters.add(Criteria.where("providerId").is(providerId));
+        filters.add(Criteria.where("timestamp").ne(null));
+        if (from != null) filters.add(Criteria.where("timestamp").gte(from));
+        if (to != null) filters.add(Criteria.where("timestamp").lt(to));
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            LocalDateTime afterTimestamp = parseTimestamp(after.sortValue(), cursor);
+            filters.add(new Criteria().orOperator(
+                    Criteria.where("timestamp").lt(afterTimestamp),
+                    Criteria.where("timestamp").is(afterTimestamp).and("_id").lt(after.id())));
+        }
+
+        Query query = new Query(new Criteria().andOperator(filters))
+                .with(Sort.by(Sort.Direction.DESC, "timestamp").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(pageSize + 1);
+        List<LeadEvent> rows = mongoTemplate.find(query, LeadEvent.class);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            LeadEvent last = rows.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getTimestamp().toString(), last.getId()).encode();
+        }
+        return CursorPage.of(rows, nextCursor);
+    }
+
+    private static LocalDateTime parseTimestamp(String value, String cursor) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
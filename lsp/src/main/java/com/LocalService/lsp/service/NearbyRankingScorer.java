@@ -0,0 +1,27 @@
+package com.LocalService.lsp.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Nearby Scoring: Focus on Proximity (30%) and Ratings (30%).
+ */
+@Component
+public class NearbyRankingScorer implements RankingScorer {
+
+    static final double CLOSE_RANGE_METERS = 5000;
+
+    @Override
+    public String mode() {
+        return "NEARBY";
+    }
+
+    @Override
+    public double score(SearchCandidate c) {
+        // Text-only NEARBY searches have no distance; they get the close-range bonus (as the old pipeline did)
+        boolean closeRange = c.distanceMeters() == null || c.distanceMeters() < CLOSE_RANGE_METERS;
+        return c.averageRating() * 6
+                + Math.min(c.completedOrders() * 0.2, 20)
+                + (closeRange ? 30 : 10)
+                + 20;
+    }
+}
@@ -0,0 +1,18 @@
+package com.LocalService.lsp.service;
+
+import java.util.Set;
+
+/**
+ * Published whenever a provider's searchable state changes (profile save, new review, completed order, delete).
+ * Carries the keys the provider is filed under now and before the write, and where it was and is, so listeners
+ * can invalidate anything that may have shown the old version.
+ * @param categoryKeys / cityKeys old and new keys; null if unknown (matches every key).
+ * @param coordinates [longitude, latitude] after the write (for a delete: where it was); null if unknown.
+ * @param previousCoordinates [longitude, latitude] before the write when it differs; null if unchanged or unknown.
+ */
+public record ProviderChangedEvent(String providerId,
+                                   Set<String> categoryKeys,
+                                   Set<String> cityKeys,
+                                   double[] coordinates,
+                                   double[] previousCoordinates) {
+}
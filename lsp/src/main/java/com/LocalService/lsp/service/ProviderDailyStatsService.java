@@ -0,0 +1,314 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.LeadEvent;
+import com.LocalService.lsp.model.ProfileView;
+import com.LocalService.lsp.model.ProviderDailyStats;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * ProviderDailyStatsService - Daily Insights Rollup (provider_daily_stats)
+ * 1. Incremental Path: completions, and each flushed batch of views / leads (InsightsIngestionService), become
+ *    $inc upserts on the provider's document for each day touched, one per provider-day per batch.
+ *    No read-modify-write, and concurrent writers on the same day cannot lose counts.
+ * 2. Unique Viewers: each day also carries a HyperLogLog sketch of its viewer sessions. A batch reads the
+ *    sketch and writes it back only if a register changed (repeat viewers never do), guarded by a
+ *    compare-and-set on sketchVersion so concurrent batches on other nodes cannot overwrite each other.
+ *    Any range of days is answered by merging its sketches: fixed memory, about 2% error.
+ *    exactUniqueViewers() keeps the precise distinct count over profile_views for audits.
+ * 3. Read Path: a month of insights is at most 31 documents found through {providerId, day}.
+ * 4. Backfill Path: rebuildAll() recomputes every day from profile_views, lead_events and COMPLETED
+ *    transactions in the database ($group + $merge) and overwrites the rolled-up fields, so it is safe to
+ *    re-run and corrects drift. Live increments that land while it runs may be overwritten; run it off-peak.
+ * 5. Drift: a failed rollup write is logged and counted as insights.rollup.failed{field}, never thrown, so the
+ *    raw events stay stored while the rollup undercounts. When that counter moves, run
+ *    POST /api/admin/jobs/provider-daily-stats/rebuild (rebuildAll) to repair the days.
+ * Days are bucketed in the server's time zone, the same zone the raw LocalDateTime fields are written in.
+ */
+@Service
+public class ProviderDailyStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderDailyStatsService.class);
+    private static final String COLLECTION = "provider_daily_stats";
+    private static final int MAX_SKETCH_ATTEMPTS = 5;
+
+    /** Month totals summed from the daily documents. */
+    public record Totals(long views, long leads, long completedOrders, double turnover) {}
+
+    private record DayKey(String providerId, String day) {
+        String id() { return providerId + ":" + day; }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Applies a flushed batch of profile views: one bulk of $inc upserts, then one sketch merge per provider-day.
+     */
+    public void recordViews(List<ProfileView> views) {
+        Map<DayKey, List<String>> sessionsByDay = new LinkedHashMap<>();
+        for (ProfileView view : views) {
+            if (view.getProviderId() == null) continue;
+            sessionsByDay.computeIfAbsent(new DayKey(view.getProviderId(), day(view.getTimestamp())), key -> new ArrayList<>())
+                    .add(view.getSessionId());
+        }
+        Map<DayKey, Long> counts = new LinkedHashMap<>();
+        sessionsByDay.forEach((key, sessions) -> counts.put(key, (long) sessions.size()));
+        incrementAll("views", counts);
+        sessionsByDay.forEach(this::addViewers);
+    }
+
+    /**
+     * Applies a flushed batch of (already deduplicated) leads as one bulk of $inc upserts.
+     */
+    public void recordLeads(List<LeadEvent> leads) {
+        Map<DayKey, Long> counts = new LinkedHashMap<>();
+        for (LeadEvent lead : leads) {
+            if (lead.getProviderId() == null) continue;
+            counts.merge(new DayKey(lead.getProviderId(), day(lead.getTimestamp())), 1L, Long::sum);
+        }
+        incrementAll("leads", counts);
+    }
+
+    /**
+     * @param createdAt the transaction's creation time: completions count on the day the payment started,
+     *                  matching how insights have always bucketed orders.
+     */
+    public void recordCompletion(String providerId, LocalDateTime createdAt, Double amount) {
+        increment(providerId, createdAt, new Update().inc("completedOrders", 1).inc("turnover", amount != null ? amount : 0.0));
+    }
+
+    /**
+     * Sums the rollup documents of the days in [from, to].
+     */
+    public Totals totals(String providerId, LocalDate from, LocalDate to) {
+        Query query = new Query(Criteria.where("providerId").is(providerId)
+                .and("day").gte(from.toString()).lte(to.toString()));
+        query.fields().include("views", "leads", "completedOrders", "turnover");
+        long views = 0, leads = 0, completedOrders = 0;
+        double turnover = 0.0;
+        for (ProviderDailyStats day : mongoTemplate.find(query, ProviderDailyStats.class)) {
+            views += day.getViews();
+            leads += day.getLeads();
+            completedOrders += day.getCompletedOrders();
+            turnover += day.getTurnover();
+        }
+        return new Totals(views, leads, completedOrders, turnover);
+    }
+
+    /**
+     * Approximate distinct viewer sessions over the days in [from, to], merged from the daily sketches.
+     * Memory stays at one sketch however long the range is.
+     */
+    public long uniqueViewers(String providerId, LocalDate from, LocalDate to) {
+        Query query = new Query(Criteria.where("providerId").is(providerId)
+                .and("day").gte(from.toString()).lte(to.toString()));
+        query.fields().include("viewerSketch");
+        HyperLogLog range = new HyperLogLog();
+        try (Stream<ProviderDailyStats> days = mongoTemplate.stream(query, ProviderDailyStats.class)) {
+            days.forEach(day -> range.merge(HyperLogLog.fromBytes(day.getViewerSketch())));
+        }
+        return range.estimate();
+    }
+
+    /**
+     * AUDIT MODE: exact distinct sessions that viewed the provider in [start, end), counted over the raw
+     * profile_views in the database. Cost grows with traffic; the insights pages use uniqueViewers().
+     */
+    public long exactUniqueViewers(String providerId, LocalDateTime start, LocalDateTime end) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("providerId").is(providerId).and("timestamp").gte(start).lt(end)),
+                Aggregation.group("sessionId"),
+                Aggregation.count().as("viewers"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        Document result = mongoTemplate.aggregate(aggregation, "profile_views", Document.class).getUniqueMappedResult();
+        return result != null && result.get("viewers") instanceof Number n ? n.longValue() : 0L;
+    }
+
+    /**
+     * BACKFILL JOB: rebuilds the views, leads and completedOrders / turnover of every provider-day from the raw
+     * collections. All grouping happens in the database; nothing is loaded into the JVM.
+     */
+    public void rebuildAll() {
+        logger.info("Starting provider daily stats rebuild");
+        long startedAt = System.currentTimeMillis();
+
+        rollUp("profile_views", "timestamp", null, new Document("views", new Document("$sum", 1)));
+        rollUp("lead_events", "timestamp", null, new Document("leads", new Document("$sum", 1)));
+        rollUp("transactions", "createdAt", Criteria.where("status").is(TransactionStateMachine.COMPLETED),
+                new Document("completedOrders", new Document("$sum", 1))
+                        .append("turnover", new Document("$sum", new Document("$ifNull", Arrays.asList("$amount", 0)))));
+        rebuildViewerSketches();
+
+        logger.info("Provider daily stats rebuild finished in {} ms", System.currentTimeMillis() - startedAt);
+    }
+
+    private void rollUp(String source, String timeField, Criteria filter, Document accumulators) {
+        Document dayExpression = new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                .append("date", "$" + timeField)
+                .append("timezone", ZoneId.systemDefault().getId()));
+        Document groupSpec = new Document("_id", new Document("providerId", "$providerId").append("day", dayExpression));
+        groupSpec.putAll(accumulators);
+        AggregationOperation group = context -> new Document("$group", groupSpec);
+        Document fields = new Document("_id", new Document("$concat", Arrays.asList("$_id.providerId", ":", "$_id.day")))
+                .append("providerId", "$_id.providerId")
+                .append("day", "$_id.day");
+        accumulators.keySet().forEach(name -> fields.append(name, "$" + name));
+        AggregationOperation project = context -> new Document("$project", fields);
+        AggregationOperation merge = context -> new Document("$merge", new Document("into", COLLECTION)
+                .append("on", "_id").append("whenMatched", "merge").append("whenNotMatched", "insert"));
+
+        Criteria present = Criteria.where("providerId").ne(null).and(timeField).ne(null);
+        List<AggregationOperation> stages = filter != null
+                ? List.of(Aggregation.match(new Criteria().andOperator(filter, present)), group, project, merge)
+                : List.of(Aggregation.match(present), group, project, merge);
+        mongoTemplate.aggregate(Aggregation.newAggregation(stages), source, Document.class);
+        logger.info("Rolled up {} into {}", source, COLLECTION);
+    }
+
+    /**
+     * Streams profile_views in {providerId, timestamp} order (the existing index) and rewrites each provider-day
+     * sketch from scratch, holding one sketch at a time. Days are bucketed in Java, exactly as recordViews() does.
+     */
+    private void rebuildViewerSketches() {
+        Query query = new Query(Criteria.where("providerId").ne(null).and("timestamp").ne(null).and("sessionId").ne(null))
+                .with(Sort.by("providerId", "timestamp"));
+        query.fields().include("providerId", "sessionId", "timestamp");
+
+        DayKey current = null;
+        HyperLogLog sketch = null;
+        long days = 0;
+        try (Stream<ProfileView> views = mongoTemplate.stream(query, ProfileView.class)) {
+            for (ProfileView view : (Iterable<ProfileView>) views::iterator) {
+                DayKey key = new DayKey(view.getProviderId(), day(view.getTimestamp()));
+                if (!key.equals(current)) {
+                    if (current != null) writeSketch(current, sketch);
+                    current = key;
+                    sketch = new HyperLogLog();
+                    days++;
+                }
+                sketch.add(view.getSessionId());
+            }
+        }
+        if (current != null) writeSketch(current, sketch);
+        logger.info("Rebuilt viewer sketches for {} provider-days", days);
+    }
+
+    private void writeSketch(DayKey key, HyperLogLog sketch) {
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(key.id())),
+                new Update().set("viewerSketch", sketch.toBytes()).inc("sketchVersion", 1)
+                        .setOnInsert("providerId", key.providerId()).setOnInsert("day", key.day()),
+                COLLECTION);
+    }
+
+    /**
+     * Compare-and-set merge of a batch's viewers into the day's sketch. Retried when another writer bumped the
+     * version in between; gives up quietly after MAX_SKETCH_ATTEMPTS (the estimate only loses those viewers).
+     */
+    private void addViewers(DayKey key, List<String> sessionIds) {
+        String id = key.id();
+        try {
+            for (int attempt = 0; attempt < MAX_SKETCH_ATTEMPTS; attempt++) {
+                Query byId = new Query(Criteria.where("_id").is(id));
+                byId.fields().include("viewerSketch", "sketchVersion");
+                ProviderDailyStats current = mongoTemplate.findOne(byId, ProviderDailyStats.class);
+                if (current == null) return; // the $inc upsert failed; rebuildAll() repairs the day
+
+                HyperLogLog sketch = HyperLogLog.fromBytes(current.getViewerSketch());
+                boolean changed = false;
+                for (String sessionId : sessionIds) {
+                    if (sessionId != null) changed |= sketch.add(sessionId);
+                }
+                if (!changed) return;
+
+                long version = current.getSketchVersion();
+                // documents written before sketches existed have no version field; it reads as 0
+                Criteria unchanged = version == 0
+                        ? Criteria.where("sketchVersion").in(0L, null)
+                        : Criteria.where("sketchVersion").is(version);
+                UpdateResult result = mongoTemplate.updateFirst(
+                        new Query(Criteria.where("_id").is(id).andOperator(unchanged)),
+                        new Update().set("viewerSketch", sketch.toBytes()).inc("sketchVersion", 1), COLLECTION);
+                if (result.getMatchedCount() > 0) return;
+            }
+            logger.warn("Viewer sketch for {} still contended after {} attempts", id, MAX_SKETCH_ATTEMPTS);
+        } catch (RuntimeException e) {
+            rollupFailed("viewerSketch", sessionIds.size());
+            logger.warn("Viewer sketch update failed for {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * One unordered bulk write for the whole batch. Like increment(), failures are logged, never thrown.
+     */
+    private void incrementAll(String field, Map<DayKey, Long> counts) {
+        if (counts.isEmpty()) return;
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+            counts.forEach((key, count) -> bulk.upsert(new Query(Criteria.where("_id").is(key.id())),
+                    new Update().inc(field, count).setOnInsert("providerId", key.providerId()).setOnInsert("day", key.day())));
+            bulk.execute();
+        } catch (RuntimeException e) {
+            rollupFailed(field, counts.values().stream().mapToLong(Long::longValue).sum());
+            logger.warn("Daily stats {} update failed for {} provider-days: {}", field, counts.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Rollup writes never fail the request that triggered them; the backfill job repairs any gap.
+     */
+    private void increment(String providerId, LocalDateTime at, Update update) {
+        if (providerId == null) return;
+        DayKey key = new DayKey(providerId, day(at));
+        try {
+            mongoTemplate.upsert(new Query(Criteria.where("_id").is(key.id())),
+                    update.setOnInsert("providerId", providerId).setOnInsert("day", key.day()), COLLECTION);
+        } catch (RuntimeException e) {
+            rollupFailed("completedOrders", 1);
+            logger.warn("Daily stats update failed for provider {} on {}: {}", providerId, key.day(), e.getMessage());
+        }
+    }
+
+    /**
+     * Counts events the rollup missed; rebuildAll() is the repair.
+     */
+    void rollupFailed(String field, long events) {
+        Counter.builder("insights.rollup.failed")
+                .description("Events stored but not rolled up into provider_daily_stats (repair: rebuildAll)")
+                .tag("field", field)
+                .register(meterRegistry)
+                .increment(events);
+    }
+
+    private static String day(LocalDateTime at) {
+        return (at != null ? at : LocalDateTime.now()).toLocalDate().toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Provider;
+import com.LocalService.lsp.model.ProviderStats;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * ProviderProfileService - Profile Writes That Leave Counters Alone
+ * 1. Targeted Updates: profile saves and photo changes are single findAndModify calls that touch only
+ *    the fields they own. Provider.stats is never written from a request copy, so a concurrent
+ *    ProviderStatsService increment cannot be lost between a read and a whole-document save.
+ * 2. Same Hooks as save(): template updates fire no mapping events, so this service publishes
+ *    BeforeConvert / AfterSave itself; ProviderSearchKeysListener still derives the search keys,
+ *    updates the term index and announces the change to the search caches.
+ */
+@Service
+public class ProviderProfileService {
+
+    private static final String COLLECTION = "providers";
+    private static final String STATS_FIELD = "stats";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Creates or replaces a provider profile. Every profile field of the payload is $set (absent ones are
+     * $unset, as a full save would), while stats are only initialised when the document is created.
+     */
+    public Provider save(Provider provider) {
+        if (provider.getId() == null) {
+            provider.setStats(new ProviderStats());
+            return mongoTemplate.insert(provider);
+        }
+
+        eventPublisher.publishEvent(new BeforeConvertEvent<>(provider, COLLECTION));
+        Document fields = new Document();
+        mongoTemplate.getConverter().write(provider, fields);
+
+        Update update = new Update();
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(Provider.class);
+        for (MongoPersistentProperty property : entity) {
+            String field = property.getFieldName();
+            if (property.isIdProperty() || STATS_FIELD.equals(field)) continue;
+            if (fields.containsKey(field)) update.set(field, fields.get(field));
+            else update.unset(field);
+        }
+        update.setOnInsert(STATS_FIELD, new ProviderStats());
+
+        Provider saved = mongoTemplate.findAndModify(byId(provider.getId()), update,
+                FindAndModifyOptions.options().returnNew(true).upsert(true), Provider.class);
+        announce(saved);
+        return saved;
+    }
+
+    /**
+     * Applies a partial update (e.g. a photo $set / $push / $pull) and returns the updated provider.
+     * @return empty if no provider has this id.
+     */
+    public Optional<Provider> update(String providerId, Update update) {
+        Provider updated = mongoTemplate.findAndModify(byId(providerId), update,
+                FindAndModifyOptions.options().returnNew(true), Provider.class);
+        if (updated == null) return Optional.empty();
+        announce(updated);
+        return Optional.of(updated);
+    }
+
+    private void announce(Provider provider) {
+        Document written = new Document();
+        mongoTemplate.getConverter().write(provider, written);
+        eventPublisher.publishEvent(new AfterSaveEvent<>(provider, written, COLLECTION));
+    }
+
+    private static Query byId(String providerId) {
+        return new Query(Criteria.where("_id").is(providerId));
+    }
+}
@@ -0,0 +1,74 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Provider;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * ProviderSearchKeysListener
+ * Hooks every Provider save (repository or template) so the normalized shadow fields are always
+ * derived server-side and the in-process term index sees the write immediately.
+ * Also announces the change (old + new keys and locations) so search caches can drop affected entries,
+ * including on delete, where the removed provider's last indexed keys and location are announced.
+ */
+@Component
+public class ProviderSearchKeysListener extends AbstractMongoEventListener<Provider> {
+
+    @Autowired
+    private ProviderTermIndex termIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<Provider> event) {
+        Provider provider = event.getSource();
+        provider.setServiceCategoryKeys(SearchKeys.normalizeAll(provider.getServiceCategory()));
+        provider.setCityKey(SearchKeys.normalize(provider.getCity()));
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Provider> event) {
+        Provider provider = event.getSource();
+
+        // Capture the previous postings and location before the index is overwritten
+        Set<String> categoryKeys = new HashSet<>(termIndex.categoryKeysOf(provider.getId()));
+        Set<String> cityKeys = new HashSet<>();
+        if (termIndex.cityKeyOf(provider.getId()) != null) cityKeys.add(termIndex.cityKeyOf(provider.getId()));
+        double[] previous = termIndex.coordinatesOf(provider.getId());
+
+        termIndex.upsert(provider);
+
+        if (provider.getServiceCategoryKeys() != null) categoryKeys.addAll(provider.getServiceCategoryKeys());
+        if (provider.getCityKey() != null) cityKeys.add(provider.getCityKey());
+        eventPublisher.publishEvent(new ProviderChangedEvent(provider.getId(), categoryKeys, cityKeys, provider.getCoordinates(),
+                Arrays.equals(previous, provider.getCoordinates()) ? null : previous));
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Provider> event) {
+        Document filter = event.getSource();
+        Object id = filter.get("_id");
+        if (id == null || id instanceof Document) return;
+        String providerId = id.toString();
+
+        // Announce with the last indexed keys; a provider this node never indexed may be anywhere
+        ProviderChangedEvent removed = termIndex.contains(providerId)
+                ? new ProviderChangedEvent(providerId, new HashSet<>(termIndex.categoryKeysOf(providerId)),
+                        termIndex.cityKeyOf(providerId) == null ? Set.of() : Set.of(termIndex.cityKeyOf(providerId)),
+                        termIndex.coordinatesOf(providerId), null)
+                : new ProviderChangedEvent(providerId, null, null, null, null);
+        termIndex.remove(providerId);
+        eventPublisher.publishEvent(removed);
+    }
+}
@@ -1,123 +1,627 @@
 package com.LocalService.lsp.service;
 
-import com.LocalService.lsp.dto.ProviderSearchResultDTO;
-import com.LocalService.lsp.model.Provider;
-import com.LocalService.lsp.repository.ProviderRepository;
+import com.LocalService.lsp.dto.KeysetCursor;
+import com.LocalService.lsp.dto.MapClusterDTO;
+import com.LocalService.lsp.dto.MapViewDTO;
+import com.LocalService.lsp.dto.ProviderSearchCardDTO;
+import com.LocalService.lsp.dto.ProviderSearchPage;
+import com.LocalService.lsp.dto.SearchFacetsDTO;
+import com.LocalService.lsp.dto.SearchProfileDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Point;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.*;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * ProviderService - City-Centric Ranking Engine
  * Updates:
  * 1. Standardized Search: Now specifically targets the 'city' field for geographic filtering.
  * 2. Mode Separation: Logic splits cleanly between NEARBY (Proximity + Trust) and REMOTE (Global Trust).
- * 3. Aggregation Logic: Combines GeoJSON coordinates with relational trust data (Reviews/Transactions).
+ * 3. Aggregation Logic: Combines GeoJSON coordinates with the denormalized trust stats embedded on each provider
+ *    (no per-search $lookup into reviews / transactions).
+ * 4. Indexed Terms: Category / city text resolves through ProviderTermIndex to exact normalized keys,
+ *    so eligibility is an index-backed $in rather than an unanchored case-insensitive $regex. Terms the
+ *    local index does not know (yet) fall back to the regex instead of matching nothing.
+ * 5. Bounded Pages: Keyset pagination on (searchScore DESC, _id ASC).
+ * 6. Two-Phase Ranking: Mongo only generates slim candidates (id, distance, stats); a pluggable
+ *    RankingScorer scores them in Java into a bounded top-k heap and only the winners are hydrated,
+ *    as projected ProviderSearchCardDTOs (full profiles come from GET /api/providers/{id}).
+ * 7. Result Cache: Pages are served from SearchResultCache and invalidated by provider writes.
+ * 8. Profiling: explain=true bypasses the cache and attaches per-stage executionStats plus Java phase
+ *    timings to the page (see SearchProfiler); phase timers are recorded for every uncached search.
+ * 9. Facets: facets=true computes city / category / delivery-type counts in one $facet aggregation over the
+ *    ranked radius (separate from the streamed candidates), cached separately with a longer TTL.
+ * 10. Streaming: rankForStream() + hydrateInChunks() back the NDJSON endpoint; cards are hydrated and
+ *     written a chunk at a time instead of as one page.
+ * 11. Adaptive Radius: GPS searches start at the close-range boundary and widen only until enough candidates
+ *     are found.
+ * 12. Gazetteer: city-only NEARBY searches for a known city (alias / misspelling tolerant, see CityGazetteer)
+ *     keep the city filter (term or canonical name) and add a $geoNear around the city centroid, bounded by the
+ *     city's radius, which only narrows the candidates: providers of the city without coordinates are unioned
+ *     back in, and no distance reaches the scorer, so every provider in the city keeps the same proximity bonus.
+ * 13. Single-Flight: concurrent identical cache misses join one in-flight computation (SingleFlight).
+ * 14. Map View: clusterMap() answers viewport queries with server-side grid clusters instead of providers.
  */
 @Service
 public class ProviderService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProviderService.class);
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 50;
+    private static final double NEARBY_RADIUS_METERS = 50_000; // 50km radius
+    private static final int FACET_BUCKET_LIMIT = 20;
+    public static final int DEFAULT_STREAM_LIMIT = 200;
+    public static final int MAX_STREAM_LIMIT = 5000;
+    private static final int STREAM_CHUNK_SIZE = 100;
+    private static final int MAX_MAP_ZOOM = 22;
+    private static final int MAP_CELLS_PER_TILE = 4;    // grid of 4x4 cells per 256px map tile (~64px markers)
+    private static final int MAX_MAP_CLUSTERS = 500;
+    private static final double RADIUS_GROWTH = 2.5; // 5km -> 12.5 -> 31.25 -> 50
+
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    private ProviderTermIndex termIndex;
+
+    @Autowired
+    private SearchResultCache resultCache;
+
+    @Autowired
+    private List<RankingScorer> rankingScorers;
+
+    @Autowired
+    private SearchProfiler profiler;
+
+    @Autowired
+    private CityGazetteer gazetteer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private SingleFlight<FlightKey, ProviderSearchPage> searchFlight;
+
+    @Value("${lsp.search.nearby.initial-radius-meters:5000}")
+    private double initialRadiusMeters;
+
+    @Value("${lsp.search.nearby.target-candidates:200}")
+    private int targetCandidates;
+
+    @PostConstruct
+    void initSearchFlight() {
+        searchFlight = new SingleFlight<>("provider.search", meterRegistry);
+    }
+
     /**
-     * SEARCH ENGINE v2.1: City-Centric Mode Support
-     * FIXED: Replaced 'location' with 'city' to align with model field standardization.
+     * SEARCH ENGINE v3.0: Two-Phase Ranking + Keyset Pagination + Result Cache
+     * GPS searches are ranked from the center of their geohash cell, so nearby callers share one ranking
+     * (and one cache entry) regardless of a few meters of jitter; distanceMeters on the returned cards is
+     * still measured from the caller's own position.
+     * @param cursor Opaque token from the previous page's nextCursor (null for the first page).
+     * @param size Page size, clamped to [1, MAX_PAGE_SIZE].
+     * @param facets Attach facet counts over all eligible providers.
+     * @param explain Profile this request: skips the cache and attaches a SearchProfileDTO to the page.
+     * @throws IllegalArgumentException if the cursor is malformed.
      */
-    public List<ProviderSearchResultDTO> searchWithRanking(String service, Double lat, Double lon, String city, String mode) {
+    public ProviderSearchPage searchWithRanking(String service, Double lat, Double lon, String city, String mode,
+                                                String cursor, int size, boolean facets, boolean explain) {
         logger.info("Executing City-Centric Search -> Mode: {}, Service: {}, City: {}", mode, service, city);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor) : null;
+        SearchPlan plan = plan(service, lat, lon, city, mode, true);
 
-        List<AggregationOperation> operations = new ArrayList<>();
+        SearchResultCache.Key cacheKey = new SearchResultCache.Key(plan.mode(), SearchKeys.normalize(service),
+                plan.cacheCity(), plan.cell(), after == null ? null : cursor, pageSize);
+        SearchFacetsDTO cachedFacets = facets && !explain ? resultCache.getFacets(cacheKey.facetKey()) : null;
+        boolean computeFacets = facets && cachedFacets == null;
+        if (!explain) {
+            ProviderSearchPage cached = resultCache.get(cacheKey);
+            if (cached != null && !computeFacets) return fromOrigin(plan, facets ? cached.withFacets(cachedFacets) : cached);
+        }
+        if (explain) return fromOrigin(plan, compute(plan, after, pageSize, cacheKey, cachedFacets, computeFacets, true));
+
+        // identical concurrent misses (e.g. a push-notification spike) share one pipeline run
+        return fromOrigin(plan, searchFlight.execute(new FlightKey(cacheKey, facets),
+                () -> compute(plan, after, pageSize, cacheKey, cachedFacets, computeFacets, false)));
+    }
+
+    /**
+     * Re-measures card distances from the caller's real GPS position (the shared ranking used the cell center).
+     */
+    private static ProviderSearchPage fromOrigin(SearchPlan plan, ProviderSearchPage page) {
+        double[] origin = plan.origin();
+        if (origin == null) return page;
+        return page.withItems(page.getItems().stream()
+                .map(card -> card.getCoordinates() == null || card.getCoordinates().length < 2 ? card
+                        : card.withDistanceMeters(GeoHash.distanceMeters(origin[1], origin[0],
+                                card.getCoordinates()[1], card.getCoordinates()[0])))
+                .toList());
+    }
+
+    /**
+     * Cache miss path: ranks, then caches unless profiling.
+     */
+    private ProviderSearchPage compute(SearchPlan plan, KeysetCursor after, int pageSize, SearchResultCache.Key cacheKey,
+                                       SearchFacetsDTO cachedFacets, boolean computeFacets, boolean explain) {
+        double[] point = plan.point();
+        SearchResultCache.Scope scope = new SearchResultCache.Scope(plan.categoryKeys(), plan.cityKeys(),
+                point != null ? new double[]{point[1], point[0]} : null,
+                plan.fixedRadius() != null ? plan.fixedRadius() : NEARBY_RADIUS_METERS);
+        long startedAt = System.nanoTime();
+        SearchProfileDTO profile = explain ? new SearchProfileDTO() : null;
+        ProviderSearchPage page;
+        page = rankAndPage(plan, after, pageSize, computeFacets, profile);
+
+        if (profile != null) {
+            profile.setTotalMillis((System.nanoTime() - startedAt) / 1e6);
+            page.setProfile(profile);
+        } else {
+            // pages are cached without facets; those have their own cache
+            resultCache.put(cacheKey, scope, page.getFacets() == null ? page : page.withFacets(null));
+            if (page.getFacets() != null) resultCache.putFacets(cacheKey.facetKey(), page.getFacets());
+        }
+        return cachedFacets != null ? page.withFacets(cachedFacets) : page;
+    }
+
+    /**
+     * STREAMING SEARCH, phase 1: ranks up to {@code limit} winners (bounded top-k of slim candidates, no cache).
+     * Not cached, so GPS streams are ranked from the caller's exact position.
+     * Cards are produced afterwards by hydrateInChunks(), so nothing larger than one chunk is ever materialized.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public StreamedSearch rankForStream(String service, Double lat, Double lon, String city, String mode,
+                                        String cursor, int limit) {
+        logger.info("Executing Streaming Search -> Mode: {}, Service: {}, City: {}, Limit: {}", mode, service, city, limit);
+        int k = Math.max(1, Math.min(limit, MAX_STREAM_LIMIT));
+        KeysetCursor after = cursor != null && !cursor.isBlank() ? KeysetCursor.decode(cursor) : null;
+        SearchPlan plan = plan(service, lat, lon, city, mode, false);
+        Ranking ranking = rank(plan, after, k);
+        return new StreamedSearch(ranking.winners(), ranking.nextCursor());
+    }
+
+    /**
+     * STREAMING SEARCH, phase 2: hydrates the winners STREAM_CHUNK_SIZE at a time and hands each chunk,
+     * in rank order, to the sink (which writes and flushes it).
+     */
+    public void hydrateInChunks(StreamedSearch search, Consumer<List<ProviderSearchCardDTO>> chunkSink) {
+        List<TopKCollector.Ranked> winners = search.winners();
+        for (int from = 0; from < winners.size(); from += STREAM_CHUNK_SIZE) {
+            chunkSink.accept(hydrate(winners.subList(from, Math.min(from + STREAM_CHUNK_SIZE, winners.size()))));
+        }
+    }
+
+    /**
+     * Ranked ids for a streaming search.
+     * @param nextCursor cursor continuing after the last winner; null when nothing follows.
+     */
+    public record StreamedSearch(List<TopKCollector.Ranked> winners, String nextCursor) {}
+
+    /**
+     * MAP VIEW: Providers inside a viewport, grid-clustered server-side.
+     * $geoWithin on the 2dsphere index selects the viewport; a $group on (lon, lat) floored to a zoom-dependent
+     * grid produces one marker per cell with its count, centroid and best-rated provider.
+     * @throws IllegalArgumentException for an invalid or over-wide (>= 180 degrees) bounding box.
+     */
+    public MapViewDTO clusterMap(double minLat, double minLon, double maxLat, double maxLon, int zoom, String service) {
+        if (minLat < -90 || maxLat > 90 || minLon < -180 || maxLon > 180 || minLat >= maxLat || minLon >= maxLon) {
+            throw new IllegalArgumentException("Invalid bounding box");
+        }
+        if (maxLon - minLon >= 180) throw new IllegalArgumentException("Bounding box too wide, zoom in");
+        int z = Math.max(0, Math.min(zoom, MAX_MAP_ZOOM));
+        double cellDegrees = 360.0 / (1L << z) / MAP_CELLS_PER_TILE;
+
+        Criteria eligibility = new Criteria();
+        eligibility.and("serviceDeliveryType").in(Arrays.asList("LOCAL", "HYBRID"));
+        applyTermFilter(eligibility, ProviderTermIndex.Field.CATEGORY, "serviceCategoryKeys", "serviceCategory", service);
+
+        // $geoWithin + $geometry (GeoJSON polygon) is answered by the 2dsphere index on coordinates
+        eligibility.and("coordinates").within(new GeoJsonPolygon(
+                new Point(minLon, minLat), new Point(maxLon, minLat), new Point(maxLon, maxLat),
+                new Point(minLon, maxLat), new Point(minLon, minLat)));
+
+        Document lon = new Document("$arrayElemAt", Arrays.asList("$coordinates", 0));
+        Document lat = new Document("$arrayElemAt", Arrays.asList("$coordinates", 1));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(eligibility),
+                new CustomAggregationOperation(new Document("$project", new Document()
+                        .append("name", 1)
+                        .append("rating", "$stats.averageRating")
+                        .append("orders", "$stats.completedOrders")
+                        .append("lon", lon)
+                        .append("lat", lat))),
+                // best provider first so $first picks it per cell
+                new CustomAggregationOperation(new Document("$sort", new Document("rating", -1).append("orders", -1).append("_id", 1))),
+                new CustomAggregationOperation(new Document("$group", new Document()
+                        .append("_id", new Document()
+                                .append("x", new Document("$floor", new Document("$divide", Arrays.asList("$lon", cellDegrees))))
+                                .append("y", new Document("$floor", new Document("$divide", Arrays.asList("$lat", cellDegrees)))))
+                        .append("count", new Document("$sum", 1))
+                        .append("lon", new Document("$avg", "$lon"))
+                        .append("lat", new Document("$avg", "$lat"))
+                        .append("topId", new Document("$first", "$_id"))
+                        .append("topName", new Document("$first", "$name"))
+                        .append("topRating", new Document("$first", "$rating")))),
+                new CustomAggregationOperation(new Document("$sort", new Document("count", -1))),
+                Aggregation.limit(MAX_MAP_CLUSTERS)
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        List<MapClusterDTO> clusters = new ArrayList<>();
+        long total = 0;
+        for (Document d : mongoTemplate.aggregate(aggregation, "providers", Document.class)) {
+            long count = toLong(d.get("count"));
+            total += count;
+            Object topId = d.get("topId");
+            clusters.add(new MapClusterDTO(
+                    ((Number) d.get("lat")).doubleValue(), ((Number) d.get("lon")).doubleValue(), count,
+                    topId instanceof ObjectId oid ? oid.toHexString() : String.valueOf(topId),
+                    d.getString("topName"),
+                    d.get("topRating") instanceof Number n ? n.doubleValue() : null));
+        }
+        logger.info("Map view -> zoom {}, {} providers in {} clusters", z, total, clusters.size());
+        return new MapViewDTO(z, cellDegrees, total, clusters);
+    }
+
+    /**
+     * Single-flight identity: the cache key plus whether the caller asked for facets.
+     */
+    private record FlightKey(SearchResultCache.Key cacheKey, boolean facets) {}
+
+    /**
+     * Normalized request: mode, eligibility filter and (snapped) search point.
+     * @param point [longitude, latitude] to $geoNear around: the GPS position (snapped to its cell center for
+     *              cached searches), or the gazetteer centroid of a city-only search; null for text searches.
+     * @param origin [longitude, latitude] the caller sent; null unless this is a GPS search.
+     * @param cacheCity city part of the cache key: the gazetteer key when resolved (so aliases share entries),
+     *                  otherwise the normalized city term.
+     * @param fixedRadius radius of a gazetteer city; null when the radius is adaptive (GPS) or unused.
+     *                    Set means a centroid search: candidates carry no distance and coordinate-less
+     *                    providers matching the eligibility filter are unioned in.
+     */
+    private record SearchPlan(String mode, Criteria eligibility, Set<String> categoryKeys, Set<String> cityKeys,
+                              double[] point, double[] origin, String cell, String cacheCity, Double fixedRadius) {
+    }
+
+    /**
+     * Phase-1 output: the sorted winners cut to k, plus what explain and the facet query need.
+     */
+    private record Ranking(List<TopKCollector.Ranked> winners, String nextCursor,
+                           Aggregation pipeline, long scanned, long candidateNanos, Double radiusMeters) {}
+
+    /**
+     * @param snapToCell rank GPS searches from their geohash cell center so they can share cache entries.
+     */
+    private SearchPlan plan(String service, Double lat, Double lon, String city, String mode, boolean snapToCell) {
         boolean isRemoteMode = "REMOTE".equalsIgnoreCase(mode);
+        boolean isGeoSearch = !isRemoteMode && lat != null && lon != null;
+        // City applies to NEARBY only; with GPS it additionally restricts the geo search to that city's boundaries
+        String cityTerm = isRemoteMode ? null : city;
 
-        // 1. ELIGIBILITY & PROXIMITY FILTERING
-        if (!isRemoteMode && lat != null && lon != null) {
-            // NEARBY MODE (GPS available): Use $geoNear for distance ranking
-            Document geoQuery = new Document("serviceDeliveryType", new Document("$in", Arrays.asList("LOCAL", "HYBRID")));
-            if (service != null && !service.isBlank()) {
-                geoQuery.append("serviceCategory", new Document("$regex", service.trim()).append("$options", "i"));
-            }
-            // Optional: If a city is also provided, restrict geo search to that city's boundaries
-            if (city != null && !city.isBlank()) {
-                geoQuery.append("city", new Document("$regex", city.trim()).append("$options", "i"));
+        String cell = null;
+        double[] point = null;
+        double[] origin = null;
+        String cacheCity = SearchKeys.normalize(cityTerm);
+        Double fixedRadius = null;
+        String cityName = null;
+        if (isGeoSearch) {
+            cell = resultCache.cellOf(lat, lon);
+            origin = new double[]{lon, lat};
+            double[] center = GeoHash.decodeCenter(cell);
+            point = snapToCell ? new double[]{center[1], center[0]} : origin;
+        } else if (cityTerm != null) {
+            // City-only NEARBY: a known city also gets a $geoNear around its centroid, narrowing the city match
+            CityGazetteer.City place = gazetteer.resolve(cityTerm);
+            if (place != null) {
+                point = new double[]{place.longitude(), place.latitude()};
+                cell = resultCache.cellOf(place.latitude(), place.longitude());
+                cacheCity = "@" + place.key();
+                fixedRadius = place.radiusMeters();
+                cityName = place.name(); // providers filed under the canonical name match an alias search too
             }
+        }
 
-            operations.add(new CustomAggregationOperation(new Document("$geoNear", new Document()
-                    .append("near", new Document("type", "Point").append("coordinates", Arrays.asList(lon, lat)))
-                    .append("distanceField", "dist.calculated")
-                    .append("maxDistance", 50000) // 50km radius
-                    .append("spherical", true)
-                    .append("query", geoQuery)
-            )));
-        } else {
-            // REMOTE MODE or NEARBY FALLBACK (Text-based search)
-            Criteria criteria = new Criteria();
-            if (isRemoteMode) {
-                criteria.and("serviceDeliveryType").in("REMOTE", "HYBRID");
-            } else {
-                criteria.and("serviceDeliveryType").in("LOCAL", "HYBRID");
-                // Match against the saved 'city' field specifically
-                if (city != null && !city.isBlank()) {
-                    criteria.and("city").regex(city.trim(), "i");
-                }
+        // 1. ELIGIBILITY: delivery type by mode + exact-match category / city keys
+        Criteria eligibility = new Criteria();
+        eligibility.and("serviceDeliveryType").in(isRemoteMode ? Arrays.asList("REMOTE", "HYBRID") : Arrays.asList("LOCAL", "HYBRID"));
+        Set<String> categoryKeys = applyTermFilter(eligibility, ProviderTermIndex.Field.CATEGORY, "serviceCategoryKeys", "serviceCategory", service);
+        Set<String> cityKeys = applyTermFilter(eligibility, ProviderTermIndex.Field.CITY, "cityKey", "city", cityTerm, cityName);
+
+        return new SearchPlan(isRemoteMode ? "REMOTE" : "NEARBY", eligibility, categoryKeys, cityKeys, point, origin, cell,
+                cacheCity, fixedRadius);
+    }
+
+    /**
+     * Two-phase ranking for an already-built eligibility filter.
+     * Phase 1 (Mongo): eligibility + distance only, projected to slim candidates and streamed.
+     * Phase 2 (Java): the mode's RankingScorer scores each candidate into a bounded top-k heap.
+     * Only the winning page is then hydrated into search cards.
+     * @param withFacets also count facets, in a separate aggregation over the same eligible set and radius
+     *                   (a $facet returns one document, so the candidates never go through it).
+     * @param profile filled with stage stats and phase timings when non-null (explain mode).
+     */
+    private ProviderSearchPage rankAndPage(SearchPlan plan, KeysetCursor after, int pageSize, boolean withFacets,
+                                           SearchProfileDTO profile) {
+        Ranking ranking = rank(plan, after, pageSize);
+        List<TopKCollector.Ranked> winners = ranking.winners();
+        Aggregation facetPipeline = withFacets ? facetAggregation(plan, ranking.radiusMeters()) : null;
+        SearchFacetsDTO facets = null;
+        if (facetPipeline != null) {
+            long facetsStartedAt = System.nanoTime();
+            facets = toFacets(mongoTemplate.aggregate(facetPipeline, "providers", Document.class).getUniqueMappedResult());
+            profiler.recordPhase("facets", plan.mode(), System.nanoTime() - facetsStartedAt);
+        }
+
+        // 5. HYDRATION: slim cards for the winners only
+        long hydrateStartedAt = System.nanoTime();
+        ProviderSearchPage page = new ProviderSearchPage(hydrate(winners), ranking.nextCursor());
+        page.setFacets(facets);
+        long hydrateNanos = System.nanoTime() - hydrateStartedAt;
+        profiler.recordPhase("hydrate", plan.mode(), hydrateNanos);
+
+        if (profile != null) {
+            profile.setCandidatesScanned(ranking.scanned());
+            profile.setRadiusMeters(ranking.radiusMeters());
+            profile.setCandidateMillis(ranking.candidateNanos() / 1e6);
+            profile.setHydrateMillis(hydrateNanos / 1e6);
+            profile.getStages().addAll(profiler.explainAggregation("candidates", ranking.pipeline(), "providers"));
+            if (facetPipeline != null) {
+                profile.getStages().addAll(profiler.explainAggregation("facets", facetPipeline, "providers"));
             }
+            if (!winners.isEmpty()) {
+                List<ObjectId> ids = winners.stream().map(r -> new ObjectId(r.candidate().id())).toList();
+                Document projection = new Document();
+                for (String field : ProviderSearchCardDTO.PROJECTED_FIELDS) projection.append(field, 1);
+                profile.getStages().addAll(profiler.explainFind("hydrate",
+                        new Document("_id", new Document("$in", ids)), projection, "providers"));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Phase 1 with ADAPTIVE RADIUS for GPS searches: starts at lsp.search.nearby.initial-radius-meters and
+     * widens by RADIUS_GROWTH until the radius yields the target number of candidates (or 50km is reached).
+     * Never starts inside NearbyRankingScorer.CLOSE_RANGE_METERS: every provider within that range earns the same
+     * proximity bonus, so stopping short of it would drop better-rated providers that outrank the ones found.
+     * Dense areas stop after a small, cheap scan; sparse towns widen until they have enough to rank.
+     * The chosen radius is pinned in the cursor so later pages rank the same candidate set.
+     */
+    private Ranking rank(SearchPlan plan, KeysetCursor after, int k) {
+        if (plan.point() == null) return rankWithin(plan, null, after, k);
+        if (plan.fixedRadius() != null) return rankWithin(plan, plan.fixedRadius(), after, k);
+
+        if (after != null && after.context() != null) {
+            return rankWithin(plan, parseRadius(after.context()), after, k);
+        }
+
+        int target = Math.max(targetCandidates, k + 1);
+        double radius = Math.min(Math.max(initialRadiusMeters, NearbyRankingScorer.CLOSE_RANGE_METERS), NEARBY_RADIUS_METERS);
+        int expansions = 0;
+        Ranking ranking = rankWithin(plan, radius, after, k);
+        while (ranking.scanned() < target && radius < NEARBY_RADIUS_METERS) {
+            radius = Math.min(radius * RADIUS_GROWTH, NEARBY_RADIUS_METERS);
+            expansions++;
+            ranking = rankWithin(plan, radius, after, k);
+        }
+        profiler.recordRadius(plan.mode(), expansions, radius);
+        return ranking;
+    }
 
-            if (service != null && !service.isBlank()) {
-                criteria.and("serviceCategory").regex(service.trim(), "i");
+    /**
+     * Streams slim candidates through the scorer into a top-(k+1) heap.
+     * The extra slot tells whether anything follows the k-th winner, which then becomes the next cursor.
+     * @param radiusMeters $geoNear maxDistance for GPS searches; null for text searches.
+     */
+    private Ranking rankWithin(SearchPlan plan, Double radiusMeters, KeysetCursor after, int k) {
+        List<AggregationOperation> operations = new ArrayList<>();
+
+        // 2. PROXIMITY
+        operations.addAll(proximityStages(plan, radiusMeters));
+
+        // 3. SLIM CANDIDATES: distance + precomputed trust stats (see ProviderStatsService).
+        // A city centroid is not the caller's position, so centroid searches pass no distance to the scorer.
+        Document slim = new Document();
+        if (plan.fixedRadius() == null) slim.append("distance", "$dist.calculated");
+        operations.add(new CustomAggregationOperation(new Document("$project", slim
+                .append("averageRating", "$stats.averageRating")
+                .append("completedOrders", "$stats.completedOrders")
+                .append("reviewCount", "$stats.reviewCount"))));
+
+        // 4. WEIGHTED SCORING + TOP-K (one extra slot detects a further page)
+        RankingScorer scorer = scorerFor(plan.mode());
+        TopKCollector topK = new TopKCollector(k + 1, after);
+        Aggregation candidatePipeline = Aggregation.newAggregation(operations);
+        long scanned = 0;
+        long candidatesStartedAt = System.nanoTime();
+        try (Stream<Document> candidates = mongoTemplate.aggregateStream(candidatePipeline, "providers", Document.class)) {
+            for (Document d : (Iterable<Document>) candidates::iterator) {
+                SearchCandidate c = toCandidate(d);
+                scanned++;
+                topK.offer(c, scorer.score(c));
             }
-            operations.add(Aggregation.match(criteria));
-        }
-
-        // 2. JOIN TRUST DATA (Reviews & Transactions)
-        operations.add(Aggregation.addFields().addFieldWithValue("idStr", ConvertOperators.ToString.toString("$_id")).build());
-        operations.add(Aggregation.lookup("reviews", "idStr", "providerId", "rawReviews"));
-        operations.add(Aggregation.lookup("transactions", "idStr", "providerId", "rawTransactions"));
-
-        // 3. METRIC CALCULATIONS
-        operations.add(Aggregation.addFields()
-                .addFieldWithValue("reviewCount", ArrayOperators.Size.lengthOfArray("rawReviews"))
-                .addFieldWithValue("averageRating", new Document("$ifNull", Arrays.asList(new Document("$avg", "$rawReviews.rating"), 0.0)))
-                .addFieldWithValue("completedOrders", ArrayOperators.Size.lengthOfArray(
-                        ArrayOperators.Filter.filter("rawTransactions")
-                                .as("tx").by(ComparisonOperators.Eq.valueOf("tx.status").equalToValue("COMPLETED"))))
-                .build());
-
-        // 4. WEIGHTED SCORING
-        Document scoringFormula = isRemoteMode ?
-                // Remote Scoring: Focus on Ratings (40%) and Volume (30%)
-                new Document("$add", Arrays.asList(
-                        new Document("$multiply", Arrays.asList("$averageRating", 8)),
-                        new Document("$min", Arrays.asList(new Document("$multiply", Arrays.asList("$completedOrders", 0.3)), 30)),
-                        20
-                )) :
-                // Nearby Scoring: Focus on Proximity (30%) and Ratings (30%)
-                new Document("$add", Arrays.asList(
-                        new Document("$multiply", Arrays.asList("$averageRating", 6)),
-                        new Document("$min", Arrays.asList(new Document("$multiply", Arrays.asList("$completedOrders", 0.2)), 20)),
-                        new Document("$cond", Arrays.asList(new Document("$lt", Arrays.asList("$dist.calculated", 5000)), 30, 10)),
-                        20
-                ));
-
-        operations.add(Aggregation.addFields().addFieldWithValue("searchScore", scoringFormula).build());
-
-        // 5. FINAL SORT & CLEANUP
-        operations.add(Aggregation.sort(Sort.Direction.DESC, "searchScore"));
-        operations.add(Aggregation.project().andExclude("rawReviews", "rawTransactions", "idStr"));
-        operations.add(Aggregation.addFields().addFieldWithValue("id", ConvertOperators.ToString.toString("$_id")).build());
-
-        return mongoTemplate.aggregate(Aggregation.newAggregation(operations), "providers", ProviderSearchResultDTO.class).getMappedResults();
+        }
+        long candidateNanos = System.nanoTime() - candidatesStartedAt;
+        profiler.recordPhase("candidates", plan.mode(), candidateNanos);
+
+        List<TopKCollector.Ranked> winners = topK.toSortedList();
+        String nextCursor = null;
+        if (winners.size() > k) {
+            winners = winners.subList(0, k);
+            TopKCollector.Ranked last = winners.get(k - 1);
+            nextCursor = new KeysetCursor(String.valueOf(last.score()), last.candidate().id(),
+                    radiusMeters != null ? String.valueOf(radiusMeters) : null).encode();
+        }
+        return new Ranking(winners, nextCursor, candidatePipeline, scanned, candidateNanos, radiusMeters);
+    }
+
+    /**
+     * Facet counts over the same eligible set the ranking used (same radius). Only bucket documents
+     * leave the database, so the single $facet result stays small however many providers match.
+     */
+    private Aggregation facetAggregation(SearchPlan plan, Double radiusMeters) {
+        List<AggregationOperation> operations = new ArrayList<>(proximityStages(plan, radiusMeters));
+        operations.add(new CustomAggregationOperation(new Document("$facet", new Document()
+                .append("byCity", facetPipeline("$cityKey", false))
+                .append("byCategory", facetPipeline("$serviceCategoryKeys", true))
+                .append("byDeliveryType", facetPipeline("$serviceDeliveryType", false)))));
+        return Aggregation.newAggregation(operations);
+    }
+
+    /**
+     * $geoNear within the radius for geographic searches, a plain eligibility $match otherwise.
+     * Centroid searches also $unionWith the eligible providers that have no coordinates, which $geoNear cannot see.
+     */
+    private static List<AggregationOperation> proximityStages(SearchPlan plan, Double radiusMeters) {
+        Criteria eligibility = plan.eligibility();
+        double[] point = plan.point();
+        if (point == null) {
+            // REMOTE MODE or NEARBY FALLBACK (Text-based search)
+            return List.of(Aggregation.match(eligibility));
+        }
+        // NEARBY MODE (GPS or city centroid): Use $geoNear for distance ranking
+        AggregationOperation geoNear = new CustomAggregationOperation(new Document("$geoNear", new Document()
+                .append("near", new Document("type", "Point").append("coordinates", Arrays.asList(point[0], point[1])))
+                .append("distanceField", "dist.calculated")
+                .append("maxDistance", radiusMeters)
+                .append("spherical", true)
+                .append("query", eligibility.getCriteriaObject())
+        ));
+        if (plan.fixedRadius() == null) return List.of(geoNear);
+
+        Criteria withoutCoordinates = new Criteria().andOperator(eligibility, Criteria.where("coordinates").is(null));
+        return List.of(geoNear, new CustomAggregationOperation(new Document("$unionWith", new Document()
+                .append("coll", "providers")
+                .append("pipeline", List.of(new Document("$match", withoutCoordinates.getCriteriaObject()))))));
+    }
+
+    /**
+     * Loads slim cards for the winners (projected to ProviderSearchCardDTO.PROJECTED_FIELDS) and decorates
+     * them with their stats and score, preserving rank order. Providers deleted between the phases are skipped.
+     */
+    private List<ProviderSearchCardDTO> hydrate(List<TopKCollector.Ranked> winners) {
+        if (winners.isEmpty()) return List.of();
+        List<String> ids = winners.stream().map(r -> r.candidate().id()).toList();
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include(ProviderSearchCardDTO.PROJECTED_FIELDS);
+        Map<String, ProviderSearchCardDTO> byId = mongoTemplate.find(query, ProviderSearchCardDTO.class, "providers")
+                .stream().collect(Collectors.toMap(ProviderSearchCardDTO::getId, Function.identity()));
+
+        List<ProviderSearchCardDTO> results = new ArrayList<>(winners.size());
+        for (TopKCollector.Ranked ranked : winners) {
+            ProviderSearchCardDTO card = byId.get(ranked.candidate().id());
+            if (card == null) continue;
+            card.setReviewCount(ranked.candidate().reviewCount());
+            card.setAverageRating(ranked.candidate().averageRating());
+            card.setCompletedOrders(ranked.candidate().completedOrders());
+            card.setDistanceMeters(ranked.candidate().distanceMeters());
+            card.setSearchScore(ranked.score());
+            results.add(card);
+        }
+        return results;
+    }
+
+    /**
+     * Top buckets of one field over the eligible set. Array fields are unwound so each element counts once.
+     */
+    private static List<Document> facetPipeline(String fieldRef, boolean unwind) {
+        List<Document> stages = new ArrayList<>();
+        if (unwind) stages.add(new Document("$unwind", fieldRef));
+        stages.add(new Document("$match", new Document(fieldRef.substring(1), new Document("$ne", null))));
+        stages.add(new Document("$group", new Document("_id", fieldRef).append("count", new Document("$sum", 1))));
+        stages.add(new Document("$sort", new Document("count", -1).append("_id", 1)));
+        stages.add(new Document("$limit", FACET_BUCKET_LIMIT));
+        return stages;
+    }
+
+    /**
+     * Maps the $facet buckets to DTOs; normalized city / category keys are shown with their display label.
+     */
+    private SearchFacetsDTO toFacets(Document result) {
+        SearchFacetsDTO facets = new SearchFacetsDTO();
+        if (result == null) return facets;
+        for (Document b : result.getList("byCity", Document.class)) {
+            facets.getByCity().add(new SearchFacetsDTO.Bucket(termIndex.labelOf(ProviderTermIndex.Field.CITY, b.getString("_id")), toLong(b.get("count"))));
+        }
+        for (Document b : result.getList("byCategory", Document.class)) {
+            facets.getByCategory().add(new SearchFacetsDTO.Bucket(termIndex.labelOf(ProviderTermIndex.Field.CATEGORY, b.getString("_id")), toLong(b.get("count"))));
+        }
+        for (Document b : result.getList("byDeliveryType", Document.class)) {
+            facets.getByDeliveryType().add(new SearchFacetsDTO.Bucket(b.getString("_id"), toLong(b.get("count"))));
+        }
+        return facets;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+
+    private RankingScorer scorerFor(String mode) {
+        RankingScorer scorer = rankingScorers.stream().filter(s -> s.mode().equals(mode)).findFirst().orElse(null);
+        if (scorer == null) throw new IllegalStateException("No RankingScorer registered for mode " + mode);
+        return scorer;
+    }
+
+    private static double parseRadius(String context) {
+        try {
+            double radius = Double.parseDouble(context);
+            if (radius > 0 && radius <= NEARBY_RADIUS_METERS) return radius;
+        } catch (NumberFormatException ignored) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid cursor radius: " + context);
+    }
+
+    private static SearchCandidate toCandidate(Document d) {
+        return new SearchCandidate(
+                d.getObjectId("_id").toHexString(),
+                d.get("distance") instanceof Number n ? n.doubleValue() : null,
+                d.get("averageRating") instanceof Number n ? n.doubleValue() : 0.0,
+                d.get("completedOrders") instanceof Number n ? n.longValue() : 0L,
+                d.get("reviewCount") instanceof Number n ? n.longValue() : 0L);
+    }
+
+    /**
+     * Narrows the criteria to providers whose normalized key matches any of the free-text terms.
+     * Uses the in-process term index to turn the term into an index-backed $in on the shadow field;
+     * until the index has loaded, or when the term matches no key this node knows (the index is per node,
+     * so the term may have been saved on another one since the last reload), falls back to the legacy
+     * case-insensitive regex on the raw field.
+     * @return the resolved keys, or null when no key filter was applied.
+     */
+    private Set<String> applyTermFilter(Criteria criteria, ProviderTermIndex.Field field, String keyField, String rawField, String... terms) {
+        List<String> given = Arrays.stream(terms).filter(t -> t != null && !t.isBlank()).map(String::trim).distinct().toList();
+        if (given.isEmpty()) return null;
+        Set<String> keys = new HashSet<>();
+        if (termIndex.isReady()) given.forEach(term -> keys.addAll(termIndex.resolve(field, term)));
+        if (keys.isEmpty()) {
+            criteria.and(rawField).regex(given.stream().map(Pattern::quote).collect(Collectors.joining("|")), "i");
+            return null;
+        }
+        criteria.and(keyField).in(keys);
+        return keys;
     }
 
     /**
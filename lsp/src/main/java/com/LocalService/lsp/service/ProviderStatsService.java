@@ -0,0 +1,166 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Provider;
+import com.LocalService.lsp.model.ProviderStats;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * ProviderStatsService - Denormalized Trust Counters
+ * 1. Incremental Path: Review and completion writes bump the embedded Provider.stats with
+ *    single atomic pipeline updates (no read-modify-write in the JVM).
+ * 2. Backfill Path: rebuildAll() recomputes every provider's counters from the raw
+ *    reviews / transactions collections and corrects any drift.
+ */
+@Service
+public class ProviderStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderStatsService.class);
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Applies a new review to the provider's counters and recomputes the average in the same update.
+     * Reviews without a star rating count towards reviewCount only (mirrors the old $avg semantics).
+     */
+    public void recordReview(String providerId, Integer rating) {
+        if (providerId == null) return;
+
+        boolean rated = rating != null;
+        AggregationOperation incrementStage = context -> new Document("$set", new Document()
+                .append("stats.reviewCount", increment("$stats.reviewCount", 1))
+                .append("stats.ratingCount", increment("$stats.ratingCount", rated ? 1 : 0))
+                .append("stats.ratingTotal", increment("$stats.ratingTotal", rated ? rating : 0)));
+        AggregationOperation averageStage = context -> new Document("$set", new Document("stats.averageRating",
+                new Document("$cond", Arrays.asList(
+                        new Document("$gt", Arrays.asList("$stats.ratingCount", 0)),
+                        new Document("$divide", Arrays.asList("$stats.ratingTotal", "$stats.ratingCount")),
+                        0.0))));
+
+        applyAndAnnounce(providerId, AggregationUpdate.from(List.of(incrementStage, averageStage)));
+        logger.debug("Review counters updated for provider: {}", providerId);
+    }
+
+    /**
+     * Counts one more COMPLETED transaction for the provider.
+     */
+    public void recordCompletedOrder(String providerId) {
+        if (providerId == null) return;
+        applyAndAnnounce(providerId, new Update().inc("stats.completedOrders", 1));
+        logger.debug("Completed order counter updated for provider: {}", providerId);
+    }
+
+    /**
+     * BACKFILL JOB: Recomputes stats for every provider from the source collections.
+     * Providers with no history are reset to zero so stale counters cannot survive.
+     * @return number of providers written.
+     */
+    public int rebuildAll() {
+        logger.info("Starting provider stats rebuild");
+        long startedAt = System.currentTimeMillis();
+
+        Map<String, Document> reviewTotals = new HashMap<>();
+        AggregationOperation reviewGroup = context -> new Document("$group", new Document("_id", "$providerId")
+                .append("reviewCount", new Document("$sum", 1))
+                .append("ratingCount", new Document("$sum", new Document("$cond", Arrays.asList(
+                        new Document("$eq", Arrays.asList(new Document("$ifNull", Arrays.asList("$rating", null)), null)), 0, 1))))
+                .append("ratingTotal", new Document("$sum", "$rating")));
+        mongoTemplate.aggregate(Aggregation.newAggregation(reviewGroup), "reviews", Document.class)
+                .forEach(d -> reviewTotals.put(d.getString("_id"), d));
+
+        Map<String, Long> completedTotals = new HashMap<>();
+        Aggregation completedAgg = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("status").is("COMPLETED")),
+                Aggregation.group("providerId").count().as("completedOrders"));
+        mongoTemplate.aggregate(completedAgg, "transactions", Document.class)
+                .forEach(d -> completedTotals.put(d.getString("_id"), toLong(d.get("completedOrders"))));
+
+        Query idsOnly = new Query();
+        idsOnly.fields().include("_id");
+
+        int written = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Provider.class);
+        int pending = 0;
+        try (Stream<Provider> providers = mongoTemplate.stream(idsOnly, Provider.class)) {
+            for (Provider p : (Iterable<Provider>) providers::iterator) {
+                Document reviews = reviewTotals.get(p.getId());
+                ProviderStats stats = new ProviderStats(
+                        reviews != null ? toLong(reviews.get("reviewCount")) : 0,
+                        reviews != null ? toLong(reviews.get("ratingCount")) : 0,
+                        reviews != null ? toDouble(reviews.get("ratingTotal")) : 0.0,
+                        completedTotals.getOrDefault(p.getId(), 0L));
+
+                bulk.updateOne(byId(p.getId()), new Update().set("stats", stats));
+                pending++;
+                if (pending == REBUILD_BATCH_SIZE) {
+                    written += bulk.execute().getModifiedCount();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Provider.class);
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) written += bulk.execute().getModifiedCount();
+
+        logger.info("Provider stats rebuild finished. Updated: {} in {} ms", written, System.currentTimeMillis() - startedAt);
+        return written;
+    }
+
+    /**
+     * Applies the counter update and publishes a ProviderChangedEvent so cached rankings get refreshed.
+     * Only the fields needed to scope invalidation are read back.
+     */
+    private void applyAndAnnounce(String providerId, UpdateDefinition update) {
+        Query query = byId(providerId);
+        query.fields().include("serviceCategoryKeys", "cityKey", "coordinates");
+        Provider updated = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Provider.class);
+        if (updated == null) return;
+
+        Set<String> cityKeys = new HashSet<>();
+        if (updated.getCityKey() != null) cityKeys.add(updated.getCityKey());
+        eventPublisher.publishEvent(new ProviderChangedEvent(providerId, new HashSet<>(updated.getServiceCategoryKeys()),
+                cityKeys, updated.getCoordinates(), null));
+    }
+
+    private static Query byId(String providerId) {
+        return new Query(Criteria.where("_id").is(providerId));
+    }
+
+    private static Document increment(String fieldRef, Number by) {
+        return new Document("$add", Arrays.asList(new Document("$ifNull", Arrays.asList(fieldRef, 0)), by));
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number n ? n.longValue() : 0L;
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number n ? n.doubleValue() : 0.0;
+    }
+}
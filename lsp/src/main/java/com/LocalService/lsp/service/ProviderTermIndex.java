@@ -0,0 +1,342 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Provider;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * ProviderTermIndex - In-Process Inverted Index over Category & City
+ * 1. Postings: normalized term -> provider ids, per field. The vocabulary is small (distinct
+ *    categories / cities), so substring matching a query against it is a cheap in-memory scan.
+ * 2. Resolution: a free-text query resolves to the exact set of stored keys it matches, which the
+ *    search pipeline then filters with an index-backed $in on Provider.serviceCategoryKeys / cityKey
+ *    instead of an unanchored case-insensitive $regex (always a collection scan).
+ * 3. Freshness: updated on every local provider save (ProviderSearchKeysListener) and fully reloaded
+ *    on a fixed delay so writes made by other nodes are picked up. The reload also backfills shadow
+ *    keys on documents written before they existed.
+ * 4. Locations: the last known coordinates of each provider are kept next to its postings, so a save can
+ *    announce where the provider was as well as where it is (search cache invalidation).
+ * 5. Typeahead: suggest() answers prefix queries from a sorted array of terms (and their word suffixes)
+ *    via binary search, ranked by how many providers use each term. The array is rebuilt lazily on the
+ *    first suggest() after any write.
+ */
+@Service
+public class ProviderTermIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderTermIndex.class);
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    public enum Field { CATEGORY, CITY }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${lsp.search.term-index.refresh-ms:600000}")
+    private long refreshMillis;
+
+    private volatile Snapshot snapshot = new Snapshot();
+    private volatile boolean ready = false;
+
+    /**
+     * One typeahead entry: searchable text (a term or a word suffix of it) pointing at its term.
+     */
+    private record SuggestEntry(String text, String key) {}
+
+    /**
+     * A typeahead hit: display label plus the number of providers filed under it.
+     */
+    public record Suggestion(Field field, String value, int count) {}
+
+    private final Map<Field, SuggestEntry[]> suggestEntries = new EnumMap<>(Field.class);
+    private volatile boolean suggestDirty = true;
+
+    /**
+     * Whether the first full load completed. Until then callers should fall back to regex matching.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Resolves a free-text query to the stored keys containing it (after normalization).
+     * @return matching keys; empty when nothing can match.
+     */
+    public Set<String> resolve(Field field, String query) {
+        String needle = SearchKeys.normalize(query);
+        if (needle == null) return Set.of();
+
+        Set<String> keys = new HashSet<>();
+        for (String term : snapshot.postings(field).keySet()) {
+            if (term.contains(needle)) keys.add(term);
+        }
+        return keys;
+    }
+
+    /**
+     * Number of providers currently filed under a normalized term.
+     */
+    public int frequency(Field field, String key) {
+        Set<String> ids = snapshot.postings(field).get(key);
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Display spelling for a normalized key (first raw value seen), or the key itself if unknown.
+     */
+    public String labelOf(Field field, String key) {
+        return snapshot.labelOf(field, key);
+    }
+
+    /**
+     * Category keys the provider is currently filed under (empty if unknown).
+     */
+    public List<String> categoryKeysOf(String providerId) {
+        return snapshot.categoriesByProvider.getOrDefault(providerId, List.of());
+    }
+
+    /**
+     * City key the provider is currently filed under, or null.
+     */
+    public String cityKeyOf(String providerId) {
+        return snapshot.cityByProvider.get(providerId);
+    }
+
+    /**
+     * Coordinates the provider was last seen at ([longitude, latitude]), or null.
+     */
+    public double[] coordinatesOf(String providerId) {
+        return snapshot.coordinatesByProvider.get(providerId);
+    }
+
+    /**
+     * Whether the provider is in the index at all (its keys and coordinates are known).
+     */
+    public boolean contains(String providerId) {
+        return snapshot.categoriesByProvider.containsKey(providerId);
+    }
+
+    /**
+     * Incremental update for a single saved provider: drops its old postings and files the new ones.
+     */
+    public void upsert(Provider provider) {
+        if (provider.getId() == null) return;
+        snapshot.put(provider.getId(), provider.getServiceCategoryKeys(), provider.getCityKey(), provider.getCoordinates());
+        snapshot.label(provider.getServiceCategory(), provider.getCity());
+        suggestDirty = true;
+    }
+
+    public void remove(String providerId) {
+        if (providerId == null) return;
+        snapshot.remove(providerId);
+        suggestDirty = true;
+    }
+
+    /**
+     * TYPEAHEAD: Terms whose text (or any word inside it) starts with the prefix, most popular first.
+     */
+    public List<Suggestion> suggest(Field field, String prefix, int limit) {
+        String needle = SearchKeys.normalize(prefix);
+        if (needle == null || limit <= 0) return List.of();
+        if (suggestDirty) rebuildSuggestions();
+
+        SuggestEntry[] entries;
+        synchronized (suggestEntries) {
+            entries = suggestEntries.get(field);
+        }
+        if (entries == null) return List.of(); // first build still in flight on another thread
+        Snapshot current = snapshot;
+        Map<String, Set<String>> postings = current.postings(field);
+
+        Set<String> matches = new LinkedHashSet<>();
+        for (int i = lowerBound(entries, needle); i < entries.length && entries[i].text().startsWith(needle); i++) {
+            matches.add(entries[i].key());
+        }
+        return matches.stream()
+                .map(key -> {
+                    Set<String> ids = postings.get(key);
+                    return new Suggestion(field, current.labelOf(field, key), ids == null ? 0 : ids.size());
+                })
+                .filter(sg -> sg.count() > 0)
+                .sorted(Comparator.comparingInt(Suggestion::count).reversed().thenComparing(Suggestion::value))
+                .limit(limit)
+                .toList();
+    }
+
+    private void rebuildSuggestions() {
+        Snapshot current = snapshot;
+        suggestDirty = false; // clear first so a concurrent write re-marks it
+        Map<Field, SuggestEntry[]> rebuilt = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            List<SuggestEntry> entries = new ArrayList<>();
+            for (String key : current.postings(field).keySet()) {
+                entries.add(new SuggestEntry(key, key));
+                for (int i = 1; i < key.length(); i++) {
+                    // also index each later word, so "clean" finds "house cleaning"
+                    if (!Character.isLetterOrDigit(key.charAt(i - 1)) && Character.isLetterOrDigit(key.charAt(i))) {
+                        entries.add(new SuggestEntry(key.substring(i), key));
+                    }
+                }
+            }
+            entries.sort(Comparator.comparing(SuggestEntry::text));
+            rebuilt.put(field, entries.toArray(new SuggestEntry[0]));
+        }
+        synchronized (suggestEntries) {
+            suggestEntries.putAll(rebuilt);
+        }
+    }
+
+    private static int lowerBound(SuggestEntry[] entries, String needle) {
+        int lo = 0, hi = entries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (entries[mid].text().compareTo(needle) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @PostConstruct
+    void scheduleReload() {
+        taskScheduler.scheduleWithFixedDelay(this::reload, Instant.now(), Duration.ofMillis(refreshMillis));
+    }
+
+    /**
+     * FULL RELOAD: Rebuilds the index from the providers collection and backfills missing shadow keys.
+     * Runs at startup and then on a fixed delay (lsp.search.term-index.refresh-ms) on the shared taskScheduler,
+     * independent of @Scheduled jobs being enabled.
+     */
+    public void reload() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            Query query = new Query();
+            query.fields().include("_id", "serviceCategory", "city", "serviceCategoryKeys", "cityKey", "coordinates");
+
+            Snapshot fresh = new Snapshot();
+            BulkOperations backfill = null;
+            int pending = 0;
+            int backfilled = 0;
+
+            try (Stream<Provider> providers = mongoTemplate.stream(query, Provider.class)) {
+                for (Provider p : (Iterable<Provider>) providers::iterator) {
+                    List<String> categoryKeys = SearchKeys.normalizeAll(p.getServiceCategory());
+                    String cityKey = SearchKeys.normalize(p.getCity());
+
+                    if (!categoryKeys.equals(p.getServiceCategoryKeys()) || !Objects.equals(cityKey, p.getCityKey())) {
+                        if (backfill == null) backfill = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Provider.class);
+                        backfill.updateOne(new Query(Criteria.where("_id").is(p.getId())),
+                                new Update().set("serviceCategoryKeys", categoryKeys).set("cityKey", cityKey));
+                        if (++pending == BACKFILL_BATCH_SIZE) {
+                            backfilled += backfill.execute().getModifiedCount();
+                            backfill = null;
+                            pending = 0;
+                        }
+                    }
+                    fresh.put(p.getId(), categoryKeys, cityKey, p.getCoordinates());
+                    fresh.label(p.getServiceCategory(), p.getCity());
+                }
+            }
+            if (backfill != null) backfilled += backfill.execute().getModifiedCount();
+
+            snapshot = fresh;
+            ready = true;
+            suggestDirty = true;
+            logger.info("Provider term index loaded: {} providers, {} categories, {} cities, {} backfilled in {} ms",
+                    fresh.providerCount(), fresh.postings(Field.CATEGORY).size(), fresh.postings(Field.CITY).size(),
+                    backfilled, System.currentTimeMillis() - startedAt);
+        } catch (Exception e) {
+            logger.warn("Provider term index reload failed, keeping previous snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Mutable postings for one generation of the index. Reloads build a fresh instance and swap it in.
+     */
+    private static class Snapshot {
+        private final Map<Field, Map<String, Set<String>>> postings = new EnumMap<>(Field.class);
+        private final Map<String, List<String>> categoriesByProvider = new ConcurrentHashMap<>();
+        private final Map<String, String> cityByProvider = new ConcurrentHashMap<>();
+        private final Map<String, double[]> coordinatesByProvider = new ConcurrentHashMap<>();
+        private final Map<Field, Map<String, String>> labels = new EnumMap<>(Field.class);
+
+        Snapshot() {
+            for (Field f : Field.values()) {
+                postings.put(f, new ConcurrentHashMap<>());
+                labels.put(f, new ConcurrentHashMap<>());
+            }
+        }
+
+        /**
+         * Remembers the first raw spelling seen for each key, used as the typeahead display value.
+         */
+        void label(List<String> rawCategories, String rawCity) {
+            if (rawCategories != null) {
+                for (String raw : rawCategories) {
+                    String key = SearchKeys.normalize(raw);
+                    if (key != null) labels.get(Field.CATEGORY).putIfAbsent(key, raw.trim());
+                }
+            }
+            String cityKey = SearchKeys.normalize(rawCity);
+            if (cityKey != null) labels.get(Field.CITY).putIfAbsent(cityKey, rawCity.trim());
+        }
+
+        String labelOf(Field field, String key) {
+            return labels.get(field).getOrDefault(key, key);
+        }
+
+        Map<String, Set<String>> postings(Field field) {
+            return postings.get(field);
+        }
+
+        int providerCount() {
+            return categoriesByProvider.size();
+        }
+
+        synchronized void put(String providerId, List<String> categoryKeys, String cityKey, double[] coordinates) {
+            remove(providerId);
+            List<String> categories = categoryKeys == null ? List.of() : List.copyOf(categoryKeys);
+            for (String key : categories) add(Field.CATEGORY, key, providerId);
+            if (cityKey != null) add(Field.CITY, cityKey, providerId);
+            categoriesByProvider.put(providerId, categories);
+            if (cityKey != null) cityByProvider.put(providerId, cityKey);
+            if (coordinates != null) coordinatesByProvider.put(providerId, coordinates.clone());
+        }
+
+        synchronized void remove(String providerId) {
+            List<String> categories = categoriesByProvider.remove(providerId);
+            if (categories != null) for (String key : categories) drop(Field.CATEGORY, key, providerId);
+            String city = cityByProvider.remove(providerId);
+            if (city != null) drop(Field.CITY, city, providerId);
+            coordinatesByProvider.remove(providerId);
+        }
+
+        private void add(Field field, String key, String providerId) {
+            postings.get(field).computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(providerId);
+        }
+
+        private void drop(Field field, String key, String providerId) {
+            postings.get(field).computeIfPresent(key, (k, ids) -> {
+                ids.remove(providerId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.LocalService.lsp.service;
+
+/**
+ * RankingScorer - Pluggable relevance formula for one search mode.
+ * Implementations are picked up as Spring beans and selected by mode(); scores are compared
+ * higher-is-better and must be deterministic so keyset cursors stay stable between pages.
+ */
+public interface RankingScorer {
+
+    /**
+     * @return the search mode this scorer ranks ("NEARBY" or "REMOTE").
+     */
+    String mode();
+
+    double score(SearchCandidate candidate);
+}
@@ -0,0 +1,22 @@
+package com.LocalService.lsp.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Remote Scoring: Focus on Ratings (40%) and Volume (30%).
+ */
+@Component
+public class RemoteRankingScorer implements RankingScorer {
+
+    @Override
+    public String mode() {
+        return "REMOTE";
+    }
+
+    @Override
+    public double score(SearchCandidate c) {
+        return c.averageRating() * 8
+                + Math.min(c.completedOrders() * 0.3, 30)
+                + 20;
+    }
+}
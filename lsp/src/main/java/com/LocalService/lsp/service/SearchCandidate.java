@@ -0,0 +1,8 @@
+package com.LocalService.lsp.service;
+
+/**
+ * Slim phase-one search candidate: just what the ranking scorers need.
+ * @param distanceMeters distance from the search point; null for non-geographic searches.
+ */
+public record SearchCandidate(String id, Double distanceMeters, double averageRating, long completedOrders, long reviewCount) {
+}
@@ -0,0 +1,38 @@
+package com.LocalService.lsp.service;
+
+import java.text.Normalizer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * SearchKeys - Canonical form for searchable text (categories, cities).
+ * Lowercases, strips diacritics ("Bengalūru" -> "bengaluru") and collapses whitespace so that
+ * stored shadow fields and incoming queries compare with plain equality.
+ */
+public final class SearchKeys {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SearchKeys() {}
+
+    /**
+     * @return the normalized key, or null for null / blank input.
+     */
+    public static String normalize(String value) {
+        if (value == null || value.isBlank()) return null;
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFKD)).replaceAll("");
+        return WHITESPACE.matcher(folded.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+
+    /**
+     * Normalizes every value, dropping blanks and duplicates while keeping order.
+     */
+    public static List<String> normalizeAll(Collection<String> values) {
+        if (values == null) return List.of();
+        return values.stream().map(SearchKeys::normalize).filter(Objects::nonNull).distinct().toList();
+    }
+}
@@ -0,0 +1,163 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.dto.SearchProfileDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchProfiler - Stage-Level Diagnostics for the Search Engine
+ * 1. Phase Timers: every uncached search records its Java phases (candidates, hydrate) as
+ *    provider.search.phase histograms, tagged by mode.
+ * 2. Explain: for explain=true requests, re-runs the candidate pipeline / hydration query through
+ *    Mongo's explain (executionStats) and flattens the plan into one row per stage.
+ * 3. Radius: adaptive NEARBY searches record how many expansions they needed and the final radius.
+ * 4. Stage Histograms: explained stages are recorded as provider.search.stage.* summaries tagged by
+ *    stage, so a plan regression (e.g. FETCH docs examined jumping) shows up on /actuator/metrics.
+ */
+@Service
+public class SearchProfiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchProfiler.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public void recordPhase(String phase, String mode, long nanos) {
+        Timer.builder("provider.search.phase")
+                .description("Wall-clock time of a search engine phase")
+                .tag("phase", phase)
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRadius(String mode, int expansions, double radiusMeters) {
+        DistributionSummary.builder("provider.search.radius.expansions")
+                .description("Radius widenings an adaptive NEARBY search needed")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(expansions);
+        DistributionSummary.builder("provider.search.radius.meters")
+                .description("Final $geoNear radius of an adaptive NEARBY search")
+                .tag("mode", mode)
+                .baseUnit("meters")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(radiusMeters);
+    }
+
+    /**
+     * Explains an aggregation with executionStats verbosity.
+     * @param label prefix for the returned stage names (e.g. "candidates").
+     */
+    public List<SearchProfileDTO.Stage> explainAggregation(String label, Aggregation aggregation, String collection) {
+        Document command = new Document("aggregate", collection)
+                .append("pipeline", aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT))
+                .append("cursor", new Document());
+        return explain(label, command);
+    }
+
+    /**
+     * Explains a find with executionStats verbosity.
+     */
+    public List<SearchProfileDTO.Stage> explainFind(String label, Document filter, Document projection, String collection) {
+        return explain(label, new Document("find", collection).append("filter", filter).append("projection", projection));
+    }
+
+    private List<SearchProfileDTO.Stage> explain(String label, Document command) {
+        List<SearchProfileDTO.Stage> stages = new ArrayList<>();
+        try {
+            Document explained = mongoTemplate.getDb().runCommand(
+                    new Document("explain", command).append("verbosity", "executionStats"));
+            collect(label, explained, stages);
+        } catch (Exception e) {
+            logger.warn("Explain of {} failed: {}", label, e.getMessage());
+        }
+        stages.forEach(this::record);
+        return stages;
+    }
+
+    /**
+     * Handles both explain shapes: a pipeline fully pushed into the query layer (top-level executionStats),
+     * and a split pipeline (a "stages" array whose first entry is the $cursor query).
+     */
+    private static void collect(String label, Document explained, List<SearchProfileDTO.Stage> out) {
+        Object pipelineStages = explained.get("stages");
+        if (pipelineStages instanceof List<?> list) {
+            for (Object item : list) {
+                if (!(item instanceof Document stage)) continue;
+                String operator = stage.keySet().iterator().next();
+                if ("$cursor".equals(operator)) {
+                    Document cursor = stage.get("$cursor", Document.class);
+                    collectPlan(label, cursor.get("executionStats", Document.class), out);
+                } else {
+                    out.add(new SearchProfileDTO.Stage(label + ":" + operator, asLong(stage.get("nReturned")), null, null,
+                            asLong(stage.get("executionTimeMillisEstimate"))));
+                }
+            }
+        } else {
+            collectPlan(label, explained.get("executionStats", Document.class), out);
+        }
+    }
+
+    private static void collectPlan(String label, Document executionStats, List<SearchProfileDTO.Stage> out) {
+        if (executionStats == null) return;
+        walk(label, executionStats.get("executionStages", Document.class), out);
+    }
+
+    private static void walk(String label, Document node, List<SearchProfileDTO.Stage> out) {
+        if (node == null) return;
+        out.add(new SearchProfileDTO.Stage(label + ":" + node.getString("stage"), asLong(node.get("nReturned")),
+                asLong(node.get("docsExamined")), asLong(node.get("keysExamined")),
+                asLong(node.get("executionTimeMillisEstimate"))));
+        walk(label, node.get("inputStage", Document.class), out);
+        if (node.get("inputStages") instanceof List<?> children) {
+            for (Object child : children) {
+                if (child instanceof Document d) walk(label, d, out);
+            }
+        }
+    }
+
+    private void record(SearchProfileDTO.Stage stage) {
+        summary("provider.search.stage.returned", stage.getStage(), stage.getReturned());
+        summary("provider.search.stage.docs.examined", stage.getStage(), stage.getDocsExamined());
+        summary("provider.search.stage.keys.examined", stage.getStage(), stage.getKeysExamined());
+        if (stage.getExecutionTimeMillis() != null) {
+            Timer.builder("provider.search.stage.time")
+                    .tag("stage", stage.getStage())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(stage.getExecutionTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void summary(String name, String stage, Long value) {
+        if (value == null) return;
+        DistributionSummary.builder(name)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(value);
+    }
+
+    private static Long asLong(Object value) {
+        return value instanceof Number n ? n.longValue() : null;
+    }
+}
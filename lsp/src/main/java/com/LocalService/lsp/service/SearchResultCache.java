@@ -0,0 +1,147 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.dto.ProviderSearchPage;
+import com.LocalService.lsp.dto.SearchFacetsDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * SearchResultCache - Bounded cache in front of the ranking pipeline
+ * 1. Keys: mode + normalized service / city terms + geohash cell of the (snapped) search point + page.
+ * 2. Eviction: size bound plus expire-after-write TTL, so staleness is capped even without invalidation.
+ * 3. Invalidation: on ProviderChangedEvent, drops every entry whose category / city / area could have
+ *    contained the provider, before or after the write (a moved provider leaves pages around its old spot).
+ *    Entries without a term filter match any category.
+ * 4. Metrics: Caffeine hit / miss / eviction meters under cache="provider.search", plus an invalidation counter.
+ * 5. Facets: facet counts live in a second cache keyed without cursor / page size and with a longer TTL.
+ *    Counts drift slowly, so they are not invalidated by provider writes; the TTL bounds how stale they get.
+ */
+@Service
+public class SearchResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultCache.class);
+
+    /**
+     * Normalized identity of a search request.
+     * @param cell geohash of the snapped search point; null for text / REMOTE searches.
+     */
+    public record Key(String mode, String service, String city, String cell, String cursor, int size) {
+
+        /**
+         * The same search without paging: every page of a query shares one set of facet counts.
+         */
+        public FacetKey facetKey() {
+            return new FacetKey(mode, service, city, cell);
+        }
+    }
+
+    public record FacetKey(String mode, String service, String city, String cell) {}
+
+    /**
+     * What a cached page may depend on.
+     * @param categoryKeys resolved category keys; null = any category.
+     * @param cityKeys resolved city keys; null = any city.
+     * @param center {lat, lon} of the search cell; null when the search was not geographic.
+     * @param radiusMeters geo search radius around center.
+     */
+    public record Scope(Set<String> categoryKeys, Set<String> cityKeys, double[] center, double radiusMeters) {}
+
+    private record Entry(ProviderSearchPage page, Scope scope) {}
+
+    private final Cache<Key, Entry> cache;
+    private final Cache<FacetKey, SearchFacetsDTO> facetCache;
+    private final Counter invalidations;
+    private final int cellPrecision;
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${lsp.search.cache.max-entries:10000}") long maxEntries,
+                             @Value("${lsp.search.cache.ttl-seconds:60}") long ttlSeconds,
+                             @Value("${lsp.search.cache.cell-precision:6}") int cellPrecision,
+                             @Value("${lsp.search.cache.facets.max-entries:2000}") long facetMaxEntries,
+                             @Value("${lsp.search.cache.facets.ttl-seconds:600}") long facetTtlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.cellPrecision = cellPrecision;
+        this.facetCache = Caffeine.newBuilder()
+                .maximumSize(facetMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(facetTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "provider.search");
+        CaffeineCacheMetrics.monitor(meterRegistry, facetCache, "provider.search.facets");
+        this.invalidations = Counter.builder("provider.search.cache.invalidations")
+                .description("Search cache entries dropped because a provider in scope changed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Geohash cell for a search point at the configured precision (~1.2 km x 0.6 km at 6).
+     */
+    public String cellOf(double lat, double lon) {
+        return GeoHash.encode(lat, lon, cellPrecision);
+    }
+
+    public ProviderSearchPage get(Key key) {
+        Entry entry = cache.getIfPresent(key);
+        return entry == null ? null : entry.page();
+    }
+
+    public void put(Key key, Scope scope, ProviderSearchPage page) {
+        cache.put(key, new Entry(page, scope));
+    }
+
+    public SearchFacetsDTO getFacets(FacetKey key) {
+        return facetCache.getIfPresent(key);
+    }
+
+    public void putFacets(FacetKey key, SearchFacetsDTO facets) {
+        facetCache.put(key, facets);
+    }
+
+    @EventListener
+    public void onProviderChanged(ProviderChangedEvent event) {
+        long before = cache.estimatedSize();
+        cache.asMap().entrySet().removeIf(e -> affects(e.getValue().scope(), event));
+        long dropped = Math.max(0, before - cache.estimatedSize());
+        if (dropped > 0) {
+            invalidations.increment(dropped);
+            logger.debug("Search cache: dropped {} entries for provider {}", dropped, event.providerId());
+        }
+    }
+
+    private static boolean affects(Scope scope, ProviderChangedEvent event) {
+        if (!intersects(scope.categoryKeys(), event.categoryKeys())) return false;
+        if (!intersects(scope.cityKeys(), event.cityKeys())) return false;
+        if (scope.center() == null || event.coordinates() == null || event.coordinates().length < 2) return true;
+        return within(scope, event.coordinates()) || (event.previousCoordinates() != null && within(scope, event.previousCoordinates()));
+    }
+
+    private static boolean within(Scope scope, double[] coordinates) {
+        if (coordinates.length < 2) return true;
+        // coordinates are stored [lon, lat]
+        return GeoHash.distanceMeters(scope.center()[0], scope.center()[1], coordinates[1], coordinates[0]) <= scope.radiusMeters();
+    }
+
+    /**
+     * A null side means "unfiltered" (scope) or "unknown" (provider), which intersects everything.
+     */
+    private static boolean intersects(Set<String> scopeKeys, Set<String> providerKeys) {
+        if (scopeKeys == null || providerKeys == null) return true;
+        return !Collections.disjoint(scopeKeys, providerKeys);
+    }
+}
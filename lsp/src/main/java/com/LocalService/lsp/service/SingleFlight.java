@@ -0,0 +1,64 @@
+package com.LocalService.lsp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight - Request Coalescing
+ * Concurrent callers asking for the same key share one in-flight computation: the first caller runs it,
+ * everyone arriving before it finishes waits on the same future. Nothing is remembered afterwards
+ * (that is the cache's job), so a failure is only seen by the callers that were already waiting.
+ * Metrics: {name}.coalesced counts callers that piggy-backed, {name}.inflight gauges running keys.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder(name + ".coalesced")
+                .description("Requests served by joining an identical in-flight computation")
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize(name + ".inflight", List.of(), inFlight);
+    }
+
+    /**
+     * Runs the computation for the key, or joins the one already running.
+     * Exceptions from the computation are rethrown to every caller sharing it.
+     */
+    public V execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        try {
+            V value = computation.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.LocalService.lsp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SseDispatcher - Non-Blocking SSE Delivery
+ * 1. Outboxes: send() only serializes the event frame and offers it to each of the user's connections'
+ *    bounded outbox; the socket write happens on the writer pool (sse-writer-*), never on the caller's
+ *    request thread. Each connection is drained by at most one writer at a time, so frames stay in order.
+ *    The pool grows from lsp.sse.writer-threads up to lsp.sse.max-writer-threads, so a client whose socket
+ *    blocks holds only its own writer instead of stalling every other stream.
+ * 2. Slow Consumers: a full outbox means the client is not keeping up. DISCONNECT (default) completes the
+ *    stream so the browser reconnects and re-reads state; DROP_OLDEST discards the oldest pending frame.
+ * 3. Heartbeats: every lsp.sse.heartbeat-seconds each connection gets an SSE comment, which keeps proxies
+ *    from idling the stream out and surfaces dead sockets as a failed write.
+ * 4. Reaping: a connection whose write fails, or that has not completed a write for
+ *    lsp.sse.stale-after-seconds while frames are pending, is removed and closed. A single write still blocked
+ *    after lsp.sse.write-timeout-seconds is reaped too and its writer interrupted, which fails the blocked
+ *    socket write; should the container ignore the interrupt, its own write timeout ends it.
+ * Metrics: sse.emitters.active, sse.outbox.depth, sse.events.dropped{reason}, sse.connections.reaped{reason}.
+ */
+@Service
+public class SseDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseDispatcher.class);
+
+    public enum SlowConsumerPolicy { DISCONNECT, DROP_OLDEST }
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${lsp.sse.outbox-capacity:64}")
+    private int outboxCapacity;
+
+    @Value("${lsp.sse.slow-consumer-policy:DISCONNECT}")
+    private SlowConsumerPolicy slowConsumerPolicy;
+
+    @Value("${lsp.sse.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${lsp.sse.max-writer-threads:64}")
+    private int maxWriterThreads;
+
+    @Value("${lsp.sse.write-timeout-seconds:10}")
+    private long writeTimeoutSeconds;
+
+    @Value("${lsp.sse.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${lsp.sse.stale-after-seconds:60}")
+    private long staleAfterSeconds;
+
+    private final Map<String, List<Connection>> connections = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor writers;
+
+    /**
+     * One open SSE stream and its pending frames.
+     */
+    private final class Connection {
+        final String userId;
+        final SseEmitter emitter;
+        final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> outbox = new ArrayBlockingQueue<>(outboxCapacity);
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile long lastWriteNanos = System.nanoTime();
+        // the writer inside emitter.send() and since when; guarded by writerLock so an interrupt can only
+        // reach the thread while it is still writing this connection
+        final Object writerLock = new Object();
+        Thread writer;
+        long writeStartedNanos;
+
+        Connection(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        // one drain task per connection at most; no task queue, so a drain either finds an idle writer or gets a
+        // new one (up to maxWriterThreads) and a few blocked sockets cannot hold back the other streams.
+        // Platform threads even in virtual-thread mode: SseEmitter.send() writes the socket inside a synchronized
+        // block, which pins a virtual thread's carrier on Java 21.
+        writers = new ThreadPoolExecutor(writerThreads, Math.max(writerThreads, maxWriterThreads), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "sse-writer-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        writers.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("sse.emitters.active", this, SseDispatcher::activeConnections)
+                .description("Open SSE streams on this node")
+                .register(meterRegistry);
+        Gauge.builder("sse.outbox.depth", this, SseDispatcher::pendingFrames)
+                .description("SSE frames queued across all connections, not yet written")
+                .register(meterRegistry);
+
+        Duration heartbeat = Duration.ofSeconds(heartbeatSeconds);
+        taskScheduler.scheduleAtFixedRate(this::heartbeatAndReap, Instant.now().plus(heartbeat), heartbeat);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        connections.values().forEach(list -> list.forEach(this::close));
+        writers.shutdown();
+    }
+
+    /**
+     * Registers an emitter for a user; it is unregistered when the client goes away or the stream times out.
+     */
+    public void register(String userId, SseEmitter emitter) {
+        register(userId, emitter, List.of());
+    }
+
+    /**
+     * Registers an emitter whose first frames are {backlog} (e.g. a Last-Event-ID replay), ahead of any live event.
+     */
+    public void register(String userId, SseEmitter emitter, List<SseEmitter.SseEventBuilder> backlog) {
+        Connection connection = new Connection(userId, emitter);
+        for (SseEmitter.SseEventBuilder event : backlog) {
+            enqueue(connection, event.build(), false);
+        }
+        if (connection.closed.get()) return; // backlog alone overflowed the outbox
+        connections.computeIfAbsent(userId, k -> new CopyOnWriteArrayList<>()).add(connection);
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+    }
+
+    /**
+     * Queues an event for every connection of the user on this node. Never blocks on the network.
+     */
+    public void send(String userId, SseEmitter.SseEventBuilder event) {
+        if (userId == null) return;
+        List<Connection> userConnections = connections.get(userId);
+        if (userConnections == null) return;
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = event.build(); // build() is not idempotent: once per event
+        for (Connection connection : userConnections) {
+            enqueue(connection, frame, false);
+        }
+    }
+
+    public int activeConnections() {
+        return connections.values().stream().mapToInt(List::size).sum();
+    }
+
+    public int pendingFrames() {
+        return connections.values().stream().flatMap(List::stream).mapToInt(c -> c.outbox.size()).sum();
+    }
+
+    private void enqueue(Connection connection, Set<ResponseBodyEmitter.DataWithMediaType> frame, boolean heartbeat) {
+        if (connection.closed.get()) return;
+        while (!connection.outbox.offer(frame)) {
+            if (heartbeat) return; // a busy stream does not need a keep-alive
+            if (slowConsumerPolicy == SlowConsumerPolicy.DISCONNECT) {
+                dropped("slow_consumer");
+                reap(connection, "slow_consumer");
+                return;
+            }
+            if (connection.outbox.poll() != null) dropped("outbox_full");
+        }
+        scheduleDrain(connection);
+    }
+
+    private void scheduleDrain(Connection connection) {
+        if (!connection.draining.compareAndSet(false, true)) return;
+        try {
+            writers.execute(() -> drain(connection));
+        } catch (RejectedExecutionException e) {
+            connection.draining.set(false); // every writer is busy: retried on the next heartbeat tick
+        }
+    }
+
+    private void drain(Connection connection) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> frame;
+            while (!connection.closed.get() && (frame = connection.outbox.poll()) != null) {
+                try {
+                    writing(connection, Thread.currentThread());
+                    connection.emitter.send(frame);
+                    connection.lastWriteNanos = System.nanoTime();
+                } catch (IOException | IllegalStateException e) {
+                    reap(connection, "write_failed");
+                    break;
+                } finally {
+                    writing(connection, null);
+                }
+            }
+        } finally {
+            connection.draining.set(false);
+        }
+        if (connection.closed.get()) {
+            complete(connection);
+        } else if (!connection.outbox.isEmpty()) {
+            // a frame offered between the last poll and clearing the flag must not be stranded
+            scheduleDrain(connection);
+        }
+    }
+
+    private void heartbeatAndReap() {
+        long staleNanos = TimeUnit.SECONDS.toNanos(staleAfterSeconds);
+        long writeTimeoutNanos = TimeUnit.SECONDS.toNanos(writeTimeoutSeconds);
+        long now = System.nanoTime();
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("heartbeat").build();
+        for (List<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                if (interruptWriteOlderThan(connection, now - writeTimeoutNanos)) continue;
+                if (!connection.outbox.isEmpty() && now - connection.lastWriteNanos > staleNanos) {
+                    reap(connection, "stale");
+                    continue;
+                }
+                enqueue(connection, ping, true);
+                if (!connection.outbox.isEmpty()) scheduleDrain(connection);
+            }
+        }
+    }
+
+    private void writing(Connection connection, Thread writer) {
+        synchronized (connection.writerLock) {
+            connection.writer = writer;
+            connection.writeStartedNanos = System.nanoTime();
+            if (writer == null) Thread.interrupted(); // an interrupt aimed at the finished write must not leak
+        }
+    }
+
+    /**
+     * Reaps the connection and interrupts its writer if the write in progress started before {startedBefore}.
+     * Completion is still left to that writer: the interrupt fails the blocked send, and drain() completes.
+     */
+    private boolean interruptWriteOlderThan(Connection connection, long startedBefore) {
+        synchronized (connection.writerLock) {
+            if (connection.writer == null || connection.writeStartedNanos - startedBefore > 0) return false;
+            reap(connection, "write_timeout");
+            connection.writer.interrupt();
+            return true;
+        }
+    }
+
+    private void reap(Connection connection, String reason) {
+        if (connection.closed.get()) return;
+        Counter.builder("sse.connections.reaped")
+                .description("SSE streams closed by the server")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        logger.debug("Closing SSE stream of {} ({})", connection.userId, reason);
+        close(connection);
+    }
+
+    /**
+     * Marks the stream closed and hands completion to its writer: complete() waits for an in-progress write,
+     * so calling it here could block a request thread (or the scheduler) behind a stuck socket.
+     */
+    private void close(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) return;
+        remove(connection);
+        connection.outbox.clear();
+        scheduleDrain(connection);
+    }
+
+    private void complete(Connection connection) {
+        try {
+            connection.emitter.complete();
+        } catch (RuntimeException ignored) {
+            // already completed by the container
+        }
+    }
+
+    private void remove(Connection connection) {
+        connections.computeIfPresent(connection.userId, (k, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private void dropped(String reason) {
+        Counter.builder("sse.events.dropped")
+                .description("SSE frames discarded before reaching the client")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
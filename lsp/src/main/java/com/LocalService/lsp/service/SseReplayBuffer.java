@@ -0,0 +1,115 @@
+package com.LocalService.lsp.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * SseReplayBuffer - Recent Events per User for Last-Event-ID Resumption
+ * 1. Event IDs: epochSeconds << 32 | sequence, the layout of a MongoDB cluster time, so change-stream events
+ *    carry the same ID on every node and locally numbered events sort with them.
+ * 2. Buffer: the last {capacity} events of each user, kept while the user receives events
+ *    (expire-after-write {window}); bounded in users as well.
+ * 3. Replay: a reconnect with Last-Event-ID gets every buffered event after that ID. When the buffer cannot
+ *    prove it still holds all of them (trimmed, expired, evicted, or older than this node), the caller is
+ *    told to resync instead - the client then reloads its history once.
+ * append() and replaySince() run their callback under the user's lock, so a live event can never overtake
+ * or duplicate the replayed ones.
+ */
+public class SseReplayBuffer<E> {
+
+    public record Event<E>(long id, E payload) {}
+
+    /**
+     * @param resync true when events after the requested ID may have been lost; events is then empty.
+     */
+    public record Replay<E>(boolean resync, List<Event<E>> events) {}
+
+    private static final class UserLog<E> {
+        final Deque<Event<E>> events = new ArrayDeque<>();
+        /** Events up to this ID may have existed but are gone (trimmed, or lost with an expired / evicted log). */
+        long trimmedThrough;
+
+        UserLog(long trimmedThrough) {
+            this.trimmedThrough = trimmedThrough;
+        }
+    }
+
+    private final Cache<String, UserLog<E>> logs;
+    private final int capacity;
+    private final Duration window;
+    private final long coveredFrom;
+    private final AtomicLong evictedThrough = new AtomicLong(Long.MIN_VALUE);
+
+    public SseReplayBuffer(int capacity, Duration window, long maxUsers) {
+        this.capacity = capacity;
+        this.window = window;
+        this.coveredFrom = idFloor(Instant.now());
+        this.logs = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(window)
+                .<String, UserLog<E>>evictionListener((user, log, cause) -> {
+                    if (cause == RemovalCause.SIZE && log != null && !log.events.isEmpty()) {
+                        evictedThrough.accumulateAndGet(log.events.peekLast().id(), Math::max);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Smallest event ID that can be issued at the given instant.
+     */
+    public static long idFloor(Instant instant) {
+        return instant.getEpochSecond() << 32;
+    }
+
+    /**
+     * Records an event for the user, then runs the delivery while still holding the user's lock.
+     */
+    public void append(String userId, Event<E> event, Runnable deliver) {
+        // compute() counts as a write, so the log's expiry restarts with every event
+        UserLog<E> log = logs.asMap().compute(userId, (k, existing) -> existing != null ? existing : new UserLog<>(horizon()));
+        synchronized (log) {
+            log.events.addLast(event);
+            while (log.events.size() > capacity) {
+                log.trimmedThrough = log.events.removeFirst().id();
+            }
+            deliver.run();
+        }
+    }
+
+    /**
+     * Works out what a client that last saw {lastEventId} missed and hands it to {register} under the user's lock.
+     */
+    public void replaySince(String userId, long lastEventId, Consumer<Replay<E>> register) {
+        // an empty log is created rather than skipped, so an event racing this reconnect waits for the lock
+        UserLog<E> log = logs.get(userId, k -> new UserLog<>(horizon()));
+        synchronized (log) {
+            if (lastEventId < coveredFrom || lastEventId < log.trimmedThrough) {
+                register.accept(new Replay<>(true, List.of()));
+                return;
+            }
+            List<Event<E>> missed = new ArrayList<>();
+            for (Event<E> event : log.events) {
+                if (event.id() > lastEventId) missed.add(event);
+            }
+            register.accept(new Replay<>(false, missed));
+        }
+    }
+
+    /**
+     * Anything older than this could have been in a log that has since expired or been evicted.
+     */
+    private long horizon() {
+        return Math.max(idFloor(Instant.now().minus(window)), evictedThrough.get());
+    }
+}
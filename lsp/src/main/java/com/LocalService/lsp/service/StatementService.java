@@ -27,10 +27,10 @@ public class StatementService {
     @Autowired private StatementRepository statementRepository;
 
     /**
-     * Scheduled Job: Run at 02:00 AM on the 1st of every month.
-     * Calculates for the previous month.
+     * Scheduled Job: Calculates for the previous month.
+     * Disabled unless lsp.statements.monthly-job.cron is set (e.g. "0 0 2 1 * ?" = 02:00 AM on the 1st).
      */
-    @Scheduled(cron = "0 0 2 1 * ?")
+    @Scheduled(cron = "${lsp.statements.monthly-job.cron:-}")
     public void scheduledMonthlyCalculation() {
         YearMonth lastMonth = YearMonth.now().minusMonths(1);
         String monthStr = lastMonth.format(DateTimeFormatter.ofPattern("yyyy-MM"));
@@ -0,0 +1,71 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.dto.KeysetCursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * TopKCollector - Bounded min-heap selecting the best K scored candidates.
+ * Ordering is (score DESC, id ASC), the same total order the keyset cursor encodes, so candidates at or
+ * before the cursor are skipped and memory stays O(K) however many candidates stream through.
+ */
+public class TopKCollector {
+
+    public record Ranked(SearchCandidate candidate, double score) {}
+
+    /**
+     * Best-first order. ObjectId hex strings are fixed-length, so string order matches _id order.
+     */
+    public static final Comparator<Ranked> BEST_FIRST =
+            Comparator.comparingDouble(Ranked::score).reversed().thenComparing(r -> r.candidate().id());
+
+    private final int k;
+    private final double afterScore;
+    private final String afterId;
+    private final PriorityQueue<Ranked> heap; // head = current worst of the kept K
+
+    /**
+     * @param after only candidates strictly after this cursor are kept; null for the first page.
+     * @throws IllegalArgumentException if the cursor's sort value is not a score.
+     */
+    public TopKCollector(int k, KeysetCursor after) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(k + 1, BEST_FIRST.reversed());
+        if (after != null) {
+            try {
+                this.afterScore = Double.parseDouble(after.sortValue());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor score: " + after.sortValue(), e);
+            }
+            this.afterId = after.id();
+        } else {
+            this.afterScore = Double.NaN;
+            this.afterId = null;
+        }
+    }
+
+    public void offer(SearchCandidate candidate, double score) {
+        if (afterId != null && !(score < afterScore || (score == afterScore && candidate.id().compareTo(afterId) > 0))) {
+            return;
+        }
+        Ranked ranked = new Ranked(candidate, score);
+        if (heap.size() < k) {
+            heap.add(ranked);
+        } else if (BEST_FIRST.compare(ranked, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(ranked);
+        }
+    }
+
+    /**
+     * @return the kept candidates, best first.
+     */
+    public List<Ranked> toSortedList() {
+        List<Ranked> ranked = new ArrayList<>(heap);
+        ranked.sort(BEST_FIRST);
+        return ranked;
+    }
+}
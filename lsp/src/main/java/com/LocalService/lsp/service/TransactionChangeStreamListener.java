@@ -0,0 +1,169 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Transaction;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * TransactionChangeStreamListener - Cluster-wide PAYMENT_UPDATE source (lsp.sse.change-stream.enabled=true)
+ * 1. Tails the transactions change stream (inserts / updates / replaces, with the full post-image) and hands
+ *    every changed transaction, with its cluster time as event id, to TransactionEventBroadcaster.deliverLocal(). Every node runs
+ *    one, so a write on any instance reaches SSE clients on all of them.
+ * 2. Resume: the resume token of each delivered event is stored per node (lsp.sse.node-id) in
+ *    sse_resume_tokens, and the stream restarts from it after a restart, so updates written while the node
+ *    was down are still delivered to clients that reconnect to it.
+ * 3. Failures: the subscription is re-registered after a back-off. A token the oplog no longer covers
+ *    (ChangeStreamHistoryLost / InvalidResumeToken) is discarded and the stream starts from "now".
+ * Requires a replica set (change streams are not available on a standalone mongod).
+ */
+@Service
+@ConditionalOnProperty(name = "lsp.sse.change-stream.enabled", havingValue = "true")
+public class TransactionChangeStreamListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionChangeStreamListener.class);
+    private static final String TOKEN_COLLECTION = "sse_resume_tokens";
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final int INVALID_RESUME_TOKEN = 260;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TransactionEventBroadcaster broadcaster;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${lsp.sse.node-id:${HOSTNAME:local}}")
+    private String nodeId;
+
+    private volatile MessageListenerContainer container;
+    private volatile Subscription subscription;
+
+    /**
+     * Starts off the main thread: loading the resume token must not hold up startup when Mongo is slow.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        taskScheduler.schedule(this::start, Instant.now());
+    }
+
+    public synchronized void start() {
+        if (container != null) return;
+        container = new DefaultMessageListenerContainer(mongoTemplate);
+        container.start();
+        subscribe();
+    }
+
+    /**
+     * Whether the change stream cursor is open; writes made before that are not seen by a stream started "from now".
+     */
+    public boolean isActive() {
+        Subscription current = subscription;
+        return current != null && current.isActive();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (container == null) return;
+        container.stop();
+        container = null;
+        subscription = null;
+    }
+
+    private synchronized void subscribe() {
+        if (container == null) return;
+        if (subscription != null) container.remove(subscription); // never run two streams on one node
+        BsonDocument resumeToken = loadResumeToken();
+        ChangeStreamRequest.ChangeStreamRequestBuilder<Transaction> request = ChangeStreamRequest.builder(this::onMessage)
+                .collection("transactions")
+                .filter(Aggregation.newAggregation(Aggregation.match(
+                        Criteria.where("operationType").in("insert", "update", "replace"))))
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+        if (resumeToken != null) request.resumeAfter(resumeToken);
+
+        subscription = container.register(request.build(), Transaction.class, this::onError);
+        logger.info("Transaction change stream started on node {} ({})", nodeId,
+                resumeToken != null ? "resuming" : "from now");
+    }
+
+    private void onMessage(Message<ChangeStreamDocument<Document>, Transaction> message) {
+        Transaction tx = message.getBody();
+        BsonTimestamp clusterTime = message.getRaw() != null ? message.getRaw().getClusterTime() : null;
+        // the cluster time is the same on every node, so a client can resume its stream on any of them
+        if (tx != null) broadcaster.deliverLocal(tx, clusterTime != null ? clusterTime.getValue() : broadcaster.nextEventId());
+        BsonDocument token = message.getRaw() != null ? message.getRaw().getResumeToken() : null;
+        if (token != null) saveResumeToken(token);
+    }
+
+    private void onError(Throwable error) {
+        if (error instanceof MongoCommandException e
+                && (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST || e.getErrorCode() == INVALID_RESUME_TOKEN)) {
+            logger.warn("Stored resume token for node {} is no longer usable, restarting stream from now", nodeId);
+            try {
+                mongoTemplate.remove(byNode(), TOKEN_COLLECTION);
+            } catch (Exception e2) {
+                logger.warn("Could not discard resume token for node {}: {}", nodeId, e2.getMessage());
+            }
+        } else {
+            logger.error("Transaction change stream failed on node {}: {}", nodeId, error.getMessage());
+        }
+        taskScheduler.schedule(this::subscribe, Instant.now().plus(RETRY_DELAY));
+    }
+
+    private BsonDocument loadResumeToken() {
+        try {
+            Document stored = mongoTemplate.findOne(byNode(), Document.class, TOKEN_COLLECTION);
+            return stored != null && stored.getString("token") != null ? BsonDocument.parse(stored.getString("token")) : null;
+        } catch (Exception e) {
+            logger.warn("Could not load resume token for node {}: {}", nodeId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * One upsert per delivered event: payment updates are low-volume, and a fresher token means
+     * fewer duplicate deliveries after a restart.
+     */
+    private void saveResumeToken(BsonDocument token) {
+        try {
+            mongoTemplate.upsert(byNode(), new Update().set("token", token.toJson()).set("updatedAt", LocalDateTime.now()),
+                    TOKEN_COLLECTION);
+        } catch (Exception e) {
+            logger.warn("Could not store resume token for node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private Query byNode() {
+        return new Query(Criteria.where("_id").is(nodeId));
+    }
+}
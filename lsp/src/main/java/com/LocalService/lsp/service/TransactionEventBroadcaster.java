@@ -0,0 +1,126 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TransactionEventBroadcaster - PAYMENT_UPDATE fan-out to SSE subscribers
+ * 1. Registry: emitters connected to THIS node, keyed by user (customer or provider) id; several per user
+ *    for multi-tab sessions. Writes go through SseDispatcher, so publishing never waits on a client socket.
+ * 2. Single-node mode (default): publish() delivers straight to the local emitters of both parties.
+ * 3. Cluster mode (lsp.sse.change-stream.enabled=true): publish() is a no-op; every node tails the
+ *    transactions change stream (TransactionChangeStreamListener) and calls deliverLocal(), so a user
+ *    connected to any instance behind the load balancer receives the update.
+ * 4. Resumption: every event carries an SSE id (the change event's cluster time, or a local counter in the
+ *    same layout) and is kept in a per-user SseReplayBuffer. A reconnect sending Last-Event-ID gets only
+ *    the events it missed; if they are no longer all buffered it gets one RESYNC event and reloads history.
+ */
+@Service
+public class TransactionEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionEventBroadcaster.class);
+    private static final long EMITTER_TIMEOUT_MS = 1800_000L; // 30-minute timeout
+
+    @Autowired
+    private SseDispatcher dispatcher;
+
+    @Value("${lsp.sse.change-stream.enabled:false}")
+    private boolean changeStreamEnabled;
+
+    private final SseReplayBuffer<Transaction> replayBuffer;
+    private final AtomicLong lastLocalId = new AtomicLong();
+
+    public TransactionEventBroadcaster(@Value("${lsp.sse.replay.events-per-user:32}") int eventsPerUser,
+                                       @Value("${lsp.sse.replay.window-minutes:30}") long windowMinutes,
+                                       @Value("${lsp.sse.replay.max-users:50000}") long maxUsers) {
+        this.replayBuffer = new SseReplayBuffer<>(eventsPerUser, Duration.ofMinutes(windowMinutes), maxUsers);
+    }
+
+    /**
+     * Opens an SSE stream for a user on this node.
+     * @param lastEventId the browser's Last-Event-ID header on a reconnect; null for a fresh stream.
+     */
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        if (lastEventId == null || lastEventId.isBlank()) {
+            dispatcher.register(userId, emitter);
+        } else {
+            replayBuffer.replaySince(userId, parseEventId(lastEventId), replay -> {
+                List<SseEmitter.SseEventBuilder> backlog = new ArrayList<>();
+                if (replay.resync()) {
+                    // the id moves the browser's Last-Event-ID past the gap, so the next reconnect replays normally
+                    backlog.add(SseEmitter.event().id(Long.toString(SseReplayBuffer.idFloor(Instant.now())))
+                            .name("RESYNC").data(Map.of("reason", "replay window exceeded")));
+                }
+                replay.events().forEach(event -> backlog.add(paymentUpdate(event)));
+                dispatcher.register(userId, emitter, backlog);
+                logger.info("SSE Session resumed for: {} (replayed {}, resync {})", userId, replay.events().size(),
+                        replay.resync());
+            });
+        }
+        logger.info("SSE Session opened for: {}. Total Active: {}", userId, dispatcher.activeConnections());
+        return emitter;
+    }
+
+    /**
+     * Announces a saved transaction to both parties, wherever they are connected.
+     */
+    public void publish(Transaction tx) {
+        if (changeStreamEnabled) return; // the change stream delivers it on every node, including this one
+        deliverLocal(tx, nextEventId());
+    }
+
+    /**
+     * Pushes the transaction to the provider's and customer's emitters connected to this node.
+     * @param eventId SSE id, increasing across events (see SseReplayBuffer for the layout).
+     */
+    public void deliverLocal(Transaction tx, long eventId) {
+        sendUpdate(tx.getProviderId(), new SseReplayBuffer.Event<>(eventId, tx));
+        sendUpdate(tx.getCustomerId(), new SseReplayBuffer.Event<>(eventId, tx));
+    }
+
+    /**
+     * Next locally numbered event id: the clock's floor for this second, or one past the previous id.
+     */
+    public long nextEventId() {
+        long floor = SseReplayBuffer.idFloor(Instant.now());
+        return lastLocalId.accumulateAndGet(floor, (previous, now) -> Math.max(previous + 1, now));
+    }
+
+    public int activeEmitters() {
+        return dispatcher.activeConnections();
+    }
+
+    private void sendUpdate(String userId, SseReplayBuffer.Event<Transaction> event) {
+        if (userId == null) return;
+        replayBuffer.append(userId, event, () -> dispatcher.send(userId, paymentUpdate(event)));
+    }
+
+    private static SseEmitter.SseEventBuilder paymentUpdate(SseReplayBuffer.Event<Transaction> event) {
+        // event name "PAYMENT_UPDATE" must match frontend .addEventListener('PAYMENT_UPDATE')
+        return SseEmitter.event().id(Long.toString(event.id())).name("PAYMENT_UPDATE").data(event.payload());
+    }
+
+    /**
+     * An unparseable id cannot be placed in the buffer, so it is treated as too old (RESYNC).
+     */
+    private static long parseEventId(String lastEventId) {
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
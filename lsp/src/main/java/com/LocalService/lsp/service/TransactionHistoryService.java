@@ -0,0 +1,101 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.dto.CursorPage;
+import com.LocalService.lsp.dto.KeysetCursor;
+import com.LocalService.lsp.dto.TransactionSummaryDTO;
+import com.LocalService.lsp.model.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TransactionHistoryService - Paged Payment History
+ * 1. Order: newest first, (createdAt desc, _id desc); _id breaks ties between payments created in the same
+ *    millisecond, so pages never skip or repeat a row.
+ * 2. Keyset Paging: the cursor is the (createdAt, _id) of the last row; the next page starts strictly after
+ *    it, so deep pages cost the same as the first (no skip).
+ * 3. Filters: optional status and createdAt window [from, to). Rows without a createdAt (legacy payments)
+ *    are left out, since they have no place in the order and could not become a cursor.
+ * 4. Index: {customerId|providerId: 1, createdAt: -1, _id: -1} (MongoIndexRegistry) serves the filter,
+ *    the sort and the cursor bound; a status filter is checked on the fetched documents.
+ */
+@Service
+public class TransactionHistoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public enum Party {
+        CUSTOMER("customerId"), PROVIDER("providerId");
+
+        private final String field;
+
+        Party(String field) {
+            this.field = field;
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * @param status optional exact status filter.
+     * @param from optional inclusive lower createdAt bound.
+     * @param to optional exclusive upper createdAt bound.
+     * @param cursor nextCursor of the previous page; null for the first page.
+     * @param size page size, clamped to [1, MAX_PAGE_SIZE].
+     * @throws IllegalArgumentException on a malformed cursor.
+     */
+    public CursorPage<TransactionSummaryDTO> history(Party party, String userId, String status,
+                                                     LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        List<Criteria> filters = new ArrayList<>();
+        filters.add(Criteria.where(party.field).is(userId));
+        filters.add(Criteria.where("createdAt").ne(null));
+        if (status != null && !status.isBlank()) filters.add(Criteria.where("status").is(status));
+        if (from != null) filters.add(Criteria.where("createdAt").gte(from));
+        if (to != null) filters.add(Criteria.where("createdAt").lt(to));
+        if (cursor != null && !cursor.isBlank()) {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            LocalDateTime afterCreatedAt = parseCreatedAt(after.sortValue(), cursor);
+            filters.add(new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(afterCreatedAt),
+                    Criteria.where("createdAt").is(afterCreatedAt).and("_id").lt(after.id())));
+        }
+
+        Query query = new Query(new Criteria().andOperator(filters))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")))
+                .limit(pageSize + 1);
+        query.fields().include(TransactionSummaryDTO.PROJECTED_FIELDS);
+
+        List<TransactionSummaryDTO> rows = mongoTemplate.query(Transaction.class)
+                .as(TransactionSummaryDTO.class)
+                .matching(query)
+                .all();
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            TransactionSummaryDTO last = rows.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt().toString(), last.getId()).encode();
+        }
+        return CursorPage.of(rows, nextCursor);
+    }
+
+    private static LocalDateTime parseCreatedAt(String value, String cursor) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * TransactionStateMachine - Atomic Payment Status Transitions
+ * 1. Lifecycle: INITIATED -> CUSTOMER_CONFIRMED -> COMPLETED, with REJECTED reachable from either open state.
+ *    COMPLETED and REJECTED are final.
+ * 2. Atomicity: each transition is one findAndModify whose filter carries the allowed source statuses and
+ *    whose update $sets only the changed fields, so concurrent requests cannot both win and nothing else
+ *    in the document is overwritten. The post-image is returned for the SSE broadcast.
+ * 3. Outcomes: empty Optional = no such transaction; IllegalStateException = the transaction exists but is
+ *    not in a state the transition may start from (the controllers answer 409).
+ * 4. Side effects run only for the request that actually moved the status (the completed-orders counter and
+ *    the daily insights rollup).
+ */
+@Service
+public class TransactionStateMachine {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionStateMachine.class);
+
+    public static final String INITIATED = "INITIATED";
+    public static final String CUSTOMER_CONFIRMED = "CUSTOMER_CONFIRMED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String REJECTED = "REJECTED";
+
+    /** Target status -> statuses it may be entered from. */
+    private static final Map<String, Set<String>> ALLOWED_SOURCES = Map.of(
+            CUSTOMER_CONFIRMED, Set.of(INITIATED),
+            COMPLETED, Set.of(CUSTOMER_CONFIRMED),
+            REJECTED, Set.of(INITIATED, CUSTOMER_CONFIRMED));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProviderStatsService providerStatsService;
+
+    @Autowired
+    private ProviderDailyStatsService dailyStatsService;
+
+    public Optional<Transaction> confirmPayment(String id) {
+        return transition(id, CUSTOMER_CONFIRMED, new Update());
+    }
+
+    public Optional<Transaction> complete(String id) {
+        Optional<Transaction> completed = transition(id, COMPLETED, new Update());
+        completed.ifPresent(tx -> {
+            providerStatsService.recordCompletedOrder(tx.getProviderId());
+            dailyStatsService.recordCompletion(tx.getProviderId(), tx.getCreatedAt(), tx.getAmount());
+        });
+        return completed;
+    }
+
+    /**
+     * @param reason optional rejection reason shown to the customer; left untouched when null.
+     */
+    public Optional<Transaction> reject(String id, String reason) {
+        Update update = new Update();
+        if (reason != null) update.set("rejectionReason", reason);
+        return transition(id, REJECTED, update);
+    }
+
+    private Optional<Transaction> transition(String id, String target, Update update) {
+        Query query = new Query(Criteria.where("_id").is(id).and("status").in(ALLOWED_SOURCES.get(target)));
+        Transaction updated = mongoTemplate.findAndModify(query, update.set("status", target),
+                FindAndModifyOptions.options().returnNew(true), Transaction.class);
+        if (updated != null) {
+            logger.info("Transaction {} moved to {}", id, target);
+            return Optional.of(updated);
+        }
+
+        // failure path only: tell "missing" apart from "wrong state"
+        Query byId = new Query(Criteria.where("_id").is(id));
+        byId.fields().include("status");
+        Transaction current = mongoTemplate.findOne(byId, Transaction.class);
+        if (current == null) return Optional.empty();
+        throw new IllegalStateException("Transaction is " + current.getStatus() + " and cannot move to " + target);
+    }
+}
@@ -0,0 +1,162 @@
+package com.LocalService.lsp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * WriteBehindQueue - Batched Asynchronous Writes
+ * 1. Ingest: offer() only enqueues into a bounded queue; the request thread never waits on the database.
+ * 2. Flush: one background thread hands the sink a batch once batchSize items are waiting or the oldest
+ *    waiting item is maxDelay old, whichever comes first.
+ * 3. Backpressure: a full queue either drops the new item (DROP, counted) or writes it on the caller's
+ *    thread (CALLER_RUNS), which slows producers down to the database's pace.
+ * 4. Shutdown: close() stops waiting for full batches, flushes everything queued and waits for the flusher;
+ *    anything offered after that is written synchronously.
+ * A failing sink loses that batch (counted as failed); the next batch is tried as usual.
+ * Metrics: {name}.queue.depth, {name}.flush (latency), {name}.batch.size, {name}.dropped, {name}.failed.
+ */
+public class WriteBehindQueue<T> {
+
+    public enum OverflowPolicy { DROP, CALLER_RUNS }
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<List<T>> sink;
+    private final Thread flusher;
+    private volatile boolean closing;
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter dropped;
+    private final Counter failed;
+
+    public WriteBehindQueue(String name, int capacity, int batchSize, Duration maxDelay, OverflowPolicy overflowPolicy,
+                            Consumer<List<T>> sink, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.sink = sink;
+
+        Gauge.builder(name + ".queue.depth", queue, BlockingQueue::size)
+                .description("Items waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder(name + ".flush")
+                .description("Time to write one batch")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder(name + ".batch.size")
+                .description("Items written per flush")
+                .register(meterRegistry);
+        this.dropped = Counter.builder(name + ".dropped")
+                .description("Items discarded because the queue was full")
+                .register(meterRegistry);
+        this.failed = Counter.builder(name + ".failed")
+                .description("Items lost because their batch could not be written")
+                .register(meterRegistry);
+
+        this.flusher = new Thread(this::run, "write-behind-" + name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * @return false if the item was dropped because the queue is full.
+     */
+    public boolean offer(T item) {
+        if (closing && !flusher.isAlive()) {
+            flush(List.of(item));
+            return true;
+        }
+        if (queue.offer(item)) return true;
+        if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+            flush(List.of(item));
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    /**
+     * Flushes everything still queued, waiting at most timeout for the flusher to finish.
+     */
+    public void close(Duration timeout) {
+        closing = true;
+        try {
+            flusher.join(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            logger.warn("Write-behind queue {} still flushing after {}; {} items pending", name, timeout, queue.size());
+            return;
+        }
+        List<T> stragglers = new ArrayList<>();
+        queue.drainTo(stragglers);
+        if (!stragglers.isEmpty()) flush(stragglers);
+    }
+
+    private void run() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                T first = queue.poll(maxDelayNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    if (closing) return;
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || closing) break;
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                closing = true; // keep draining; the loop ends once the queue is empty
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    private void flush(List<T> batch) {
+        long started = System.nanoTime();
+        try {
+            sink.accept(batch);
+            batchSizes.record(batch.size());
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            logger.error("Write-behind queue {} failed to write {} items: {}", name, batch.size(), e.getMessage());
+        } finally {
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.LocalService.lsp.bench;
+
+import com.LocalService.lsp.model.Provider;
+import com.LocalService.lsp.repository.ProviderRepository;
+import com.LocalService.lsp.service.S3Service;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Concurrent-request capacity of search, photo upload and SSE under platform vs virtual threads.
+ * Tomcat's pool is capped (lsp.bench.tomcat-threads, default 50) so the platform-thread ceiling is visible;
+ * S3 is replaced by a fixed-latency stub (lsp.bench.s3-latency-ms) so upload numbers measure the thread model,
+ * not the network. Run once per mode on Java 21 and compare the printed tables:
+ *   mvn test -Dtest=ConcurrencyLoadBenchmark -Dlsp.bench=true [-Dspring.data.mongodb.uri=mongodb://localhost:27017]
+ *   mvn test -Dtest=ConcurrencyLoadBenchmark -Dlsp.bench=true -Dspring.threads.virtual.enabled=true
+ */
+@EnabledIfSystemProperty(named = "lsp.bench", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.data.mongodb.database=lsp_load_bench",
+        "server.tomcat.threads.max=${lsp.bench.tomcat-threads:50}"
+})
+class ConcurrencyLoadBenchmark {
+
+    private static final int CONCURRENCY = Integer.getInteger("lsp.bench.concurrency", 500);
+    private static final int SSE_STREAMS = Integer.getInteger("lsp.bench.sse-streams", 2000);
+    private static final long S3_LATENCY_MS = Long.getLong("lsp.bench.s3-latency-ms", 200);
+    private static final String BOUNDARY = "lsp-bench-boundary";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @MockitoBean
+    private S3Service s3Service;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private String providerId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        when(s3Service.uploadFile(any(), anyString(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(S3_LATENCY_MS);
+            return "https://bench.invalid/photo.jpg";
+        });
+
+        Provider provider = new Provider();
+        provider.setName("Bench Plumber");
+        provider.setServiceCategory(List.of("Plumber"));
+        provider.setServiceDeliveryType("REMOTE");
+        provider.setCity("Chennai");
+        providerId = providerRepository.save(provider).getId();
+
+        System.out.printf("%nThreading: %s, Tomcat max threads: %s, concurrency: %d%n",
+                Boolean.getBoolean("spring.threads.virtual.enabled") ? "virtual" : "platform",
+                System.getProperty("lsp.bench.tomcat-threads", "50"), CONCURRENCY);
+        System.out.printf("%-10s %8s %8s %10s %10s %10s%n", "workload", "ok", "failed", "wall ms", "p50 ms", "p99 ms");
+    }
+
+    @AfterAll
+    void cleanup() {
+        mongoTemplate.getDb().drop();
+    }
+
+    @Test
+    void search() throws Exception {
+        searchBurst("search");
+    }
+
+    @Test
+    void upload() throws Exception {
+        URI uri = URI.create("http://localhost:" + port + "/api/providers/" + providerId + "/photos");
+        byte[] body = multipart(new byte[32 * 1024]);
+        burst("upload", () -> HttpRequest.newBuilder(uri)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build());
+    }
+
+    /**
+     * Opens SSE_STREAMS streams and holds them, then measures a search burst while they stay open.
+     */
+    @Test
+    void sse() throws Exception {
+        List<InputStream> open = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch connected = new CountDownLatch(SSE_STREAMS);
+        AtomicInteger failed = new AtomicInteger();
+        long started = System.nanoTime();
+        for (int i = 0; i < SSE_STREAMS; i++) {
+            URI uri = URI.create("http://localhost:" + port + "/api/transactions/customer/bench-" + i + "/stream");
+            http.sendAsync(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofInputStream())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() == 200) open.add(response.body());
+                        else failed.incrementAndGet();
+                        connected.countDown();
+                    });
+        }
+        connected.await(60, TimeUnit.SECONDS);
+        System.out.printf("%-10s %8d %8d %10d %10s %10s%n", "sse-open", open.size(), failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), "-", "-");
+        try {
+            searchBurst("search+sse");
+        } finally {
+            for (InputStream stream : open) stream.close();
+        }
+    }
+
+    private void searchBurst(String workload) throws Exception {
+        URI uri = URI.create("http://localhost:" + port + "/api/providers/search?service=plumber&mode=REMOTE");
+        burst(workload, () -> HttpRequest.newBuilder(uri).GET().build());
+    }
+
+    private void burst(String workload, Supplier<HttpRequest> request) throws Exception {
+        List<CompletableFuture<Long>> calls = new ArrayList<>(CONCURRENCY);
+        AtomicInteger failed = new AtomicInteger();
+        long started = System.nanoTime();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            long sent = System.nanoTime();
+            calls.add(http.sendAsync(request.get(), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        if (error != null || response.statusCode() >= 400) {
+                            failed.incrementAndGet();
+                            return null;
+                        }
+                        return System.nanoTime() - sent;
+                    }));
+        }
+        List<Long> latencies = new ArrayList<>();
+        for (CompletableFuture<Long> call : calls) {
+            Long nanos = call.get(5, TimeUnit.MINUTES);
+            if (nanos != null) latencies.add(nanos);
+        }
+        long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        Collections.sort(latencies);
+        System.out.printf("%-10s %8d %8d %10d %10d %10d%n", workload, latencies.size(), failed.get(), wallMillis,
+                percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99));
+    }
+
+    private static long percentileMillis(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) return -1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted.get((int) Math.min(sorted.size() - 1, Math.floor(p * sorted.size()))));
+    }
+
+    private static byte[] multipart(byte[] file) {
+        String head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"bench.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n";
+        String tail = "\r\n--" + BOUNDARY + "--\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.US_ASCII);
+        byte[] tailBytes = tail.getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[headBytes.length + file.length + tailBytes.length];
+        System.arraycopy(headBytes, 0, body, 0, headBytes.length);
+        System.arraycopy(file, 0, body, headBytes.length, file.length);
+        System.arraycopy(tailBytes, 0, body, headBytes.length + file.length, tailBytes.length);
+        return body;
+    }
+}
@@ -0,0 +1,139 @@
+package com.LocalService.lsp.bench;
+
+import com.LocalService.lsp.service.SearchKeys;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Indexes;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Regex scan vs. normalized-key index for category + city search, at 10k and 100k providers.
+ * Opt-in (needs a disposable MongoDB):
+ *   mvn test -Dtest=ProviderTermSearchBenchmark -Dlsp.bench=true [-Dlsp.bench.mongo-uri=mongodb://localhost:27017]
+ */
+@EnabledIfSystemProperty(named = "lsp.bench", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ProviderTermSearchBenchmark {
+
+    private static final int ITERATIONS = 50;
+    private static final List<String> CATEGORIES = vocabulary("Service", 200);
+    private static final List<String> CITIES = vocabulary("City", 100);
+
+    private MongoClient client;
+    private MongoDatabase db;
+
+    @BeforeAll
+    void connect() {
+        client = MongoClients.create(System.getProperty("lsp.bench.mongo-uri", "mongodb://localhost:27017"));
+        db = client.getDatabase("lsp_bench");
+    }
+
+    @AfterAll
+    void cleanup() {
+        db.drop();
+        client.close();
+    }
+
+    @Test
+    void tenThousandProviders() {
+        run(10_000);
+    }
+
+    @Test
+    void hundredThousandProviders() {
+        run(100_000);
+    }
+
+    private void run(int providers) {
+        MongoCollection<Document> collection = seed(providers);
+        String service = "service 1";   // substring hit: service 1, service 10..19, service 100..199
+        String city = "CITY 4";
+
+        Bson regexFilter = new Document("serviceDeliveryType", new Document("$in", List.of("LOCAL", "HYBRID")))
+                .append("serviceCategory", new Document("$regex", service).append("$options", "i"))
+                .append("city", new Document("$regex", city).append("$options", "i"));
+
+        long regexNanos = time(() -> collection.find(regexFilter).into(new ArrayList<>()).size());
+
+        // Indexed path: substring match against the in-memory vocabulary, then exact $in on shadow keys
+        long indexedNanos = time(() -> {
+            Bson keyFilter = new Document("serviceDeliveryType", new Document("$in", List.of("LOCAL", "HYBRID")))
+                    .append("serviceCategoryKeys", new Document("$in", resolve(CATEGORIES, service)))
+                    .append("cityKey", new Document("$in", resolve(CITIES, city)));
+            return collection.find(keyFilter).into(new ArrayList<>()).size();
+        });
+
+        Bson keyFilter = new Document("serviceDeliveryType", new Document("$in", List.of("LOCAL", "HYBRID")))
+                .append("serviceCategoryKeys", new Document("$in", resolve(CATEGORIES, service)))
+                .append("cityKey", new Document("$in", resolve(CITIES, city)));
+        assertEquals(collection.countDocuments(regexFilter), collection.countDocuments(keyFilter), "paths must agree");
+
+        System.out.printf("[%,d providers] regex: %.2f ms/query, %s docs examined | indexed: %.2f ms/query, %s docs examined%n",
+                providers,
+                regexNanos / 1e6 / ITERATIONS, docsExamined(collection, regexFilter),
+                indexedNanos / 1e6 / ITERATIONS, docsExamined(collection, keyFilter));
+    }
+
+    private MongoCollection<Document> seed(int providers) {
+        MongoCollection<Document> collection = db.getCollection("providers_" + providers);
+        collection.drop();
+        Random random = new Random(42);
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < providers; i++) {
+            List<String> categories = List.of(CATEGORIES.get(random.nextInt(CATEGORIES.size())),
+                    CATEGORIES.get(random.nextInt(CATEGORIES.size())));
+            String city = CITIES.get(random.nextInt(CITIES.size()));
+            batch.add(new Document("name", "Provider " + i)
+                    .append("serviceCategory", categories)
+                    .append("serviceCategoryKeys", SearchKeys.normalizeAll(categories))
+                    .append("city", city)
+                    .append("cityKey", SearchKeys.normalize(city))
+                    .append("serviceDeliveryType", random.nextBoolean() ? "LOCAL" : "HYBRID")
+                    .append("description", "x".repeat(400)));
+            if (batch.size() == 5_000) {
+                collection.insertMany(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) collection.insertMany(batch);
+        collection.createIndex(Indexes.ascending("serviceCategoryKeys"));
+        collection.createIndex(Indexes.ascending("cityKey"));
+        return collection;
+    }
+
+    private static List<String> resolve(List<String> vocabulary, String query) {
+        String needle = SearchKeys.normalize(query);
+        return vocabulary.stream().map(SearchKeys::normalize).filter(k -> k.contains(needle)).toList();
+    }
+
+    private static long time(java.util.function.IntSupplier query) {
+        for (int i = 0; i < 5; i++) query.getAsInt(); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) query.getAsInt();
+        return System.nanoTime() - start;
+    }
+
+    private Object docsExamined(MongoCollection<Document> collection, Bson filter) {
+        Document explain = db.runCommand(new Document("explain", new Document("find", collection.getNamespace().getCollectionName())
+                .append("filter", filter)).append("verbosity", "executionStats"));
+        return explain.get("executionStats", Document.class).get("totalDocsExamined");
+    }
+
+    private static List<String> vocabulary(String prefix, int size) {
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) values.add(prefix + " " + i);
+        return values;
+    }
+}
@@ -0,0 +1,73 @@
+package com.LocalService.lsp.bench;
+
+import com.LocalService.lsp.service.NearbyRankingScorer;
+import com.LocalService.lsp.service.RankingScorer;
+import com.LocalService.lsp.service.RemoteRankingScorer;
+import com.LocalService.lsp.service.SearchCandidate;
+import com.LocalService.lsp.service.TopKCollector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: Java phase of the two-phase ranking (score every candidate + bounded top-k heap).
+ * Opt-in, no database needed:
+ *   mvn test -Dtest=RankingScorerBenchmark -Dlsp.bench=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankingScorerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int candidates;
+
+    @Param({"21"})
+    public int k;
+
+    private SearchCandidate[] pool;
+    private final RankingScorer nearby = new NearbyRankingScorer();
+    private final RankingScorer remote = new RemoteRankingScorer();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        pool = new SearchCandidate[candidates];
+        for (int i = 0; i < candidates; i++) {
+            pool[i] = new SearchCandidate(String.format("%024x", i), random.nextDouble() * 50_000,
+                    Math.round(random.nextDouble() * 50) / 10.0, random.nextInt(200), random.nextInt(300));
+        }
+    }
+
+    @Benchmark
+    public List<TopKCollector.Ranked> nearbyTopK() {
+        return topK(nearby);
+    }
+
+    @Benchmark
+    public List<TopKCollector.Ranked> remoteTopK() {
+        return topK(remote);
+    }
+
+    private List<TopKCollector.Ranked> topK(RankingScorer scorer) {
+        TopKCollector collector = new TopKCollector(k, null);
+        for (SearchCandidate c : pool) collector.offer(c, scorer.score(c));
+        return collector.toSortedList();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "lsp.bench", matches = "true")
+    void runBenchmarks() throws RunnerException {
+        new Runner(new OptionsBuilder().include(RankingScorerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
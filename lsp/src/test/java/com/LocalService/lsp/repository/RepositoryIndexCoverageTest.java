@@ -0,0 +1,124 @@
+package com.LocalService.lsp.repository;
+
+import com.LocalService.lsp.config.MongoIndexRegistry;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Explains every derived repository query against a throwaway database and fails on any COLLSCAN.
+ * New finders are picked up automatically; add a matching entry to MongoIndexRegistry when this fails.
+ * Opt-in (needs a disposable MongoDB):
+ *   mvn test -Dtest=RepositoryIndexCoverageTest -Dlsp.explain=true [-Dspring.data.mongodb.uri=mongodb://localhost:27017]
+ */
+@EnabledIfSystemProperty(named = "lsp.explain", matches = "true")
+@SpringBootTest(properties = "spring.data.mongodb.database=lsp_explain")
+class RepositoryIndexCoverageTest {
+
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "count", "aggregate", "distinct", "delete");
+    private static final List<BsonDocument> captured = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class CaptureCommands {
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandCapture() {
+            return builder -> builder.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (QUERY_COMMANDS.contains(event.getCommandName())) captured.add(event.getCommand().clone());
+                }
+            });
+        }
+    }
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoIndexRegistry indexRegistry;
+
+    @Test
+    void everyRepositoryQueryUsesAnIndex() throws Exception {
+        indexRegistry.ensureIndexes();
+
+        List<String> offenders = new ArrayList<>();
+        Repositories repositories = new Repositories(context);
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation info = repositories.getRequiredRepositoryInformation(domainType);
+            Object repository = repositories.getRepositoryFor(domainType).orElseThrow();
+
+            for (Method finder : info.getQueryMethods()) {
+                captured.clear();
+                finder.invoke(repository, argumentsFor(finder));
+                for (BsonDocument command : captured) {
+                    if (usesCollectionScan(explain(command))) {
+                        offenders.add(info.getRepositoryInterface().getSimpleName() + "." + finder.getName() + " -> " + command.toJson());
+                    }
+                }
+            }
+        }
+        assertTrue(offenders.isEmpty(), "COLLSCAN in repository queries:\n" + String.join("\n", offenders));
+    }
+
+    private Document explain(BsonDocument command) {
+        Document body = Document.parse(command.toJson());
+        for (String driverField : List.of("$db", "lsid", "$clusterTime", "$readPreference", "txnNumber")) {
+            body.remove(driverField);
+        }
+        return mongoTemplate.getDb().runCommand(new Document("explain", body).append("verbosity", "queryPlanner"));
+    }
+
+    /**
+     * Walks the winning plan (and aggregate $cursor stages) for a COLLSCAN node; rejected plans are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean usesCollectionScan(Object node) {
+        if (node instanceof Document doc) {
+            if ("COLLSCAN".equals(doc.get("stage"))) return true;
+            for (Map.Entry<String, Object> e : doc.entrySet()) {
+                if (!"rejectedPlans".equals(e.getKey()) && usesCollectionScan(e.getValue())) return true;
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object item : list) if (usesCollectionScan(item)) return true;
+        }
+        return false;
+    }
+
+    private static Object[] argumentsFor(Method finder) {
+        Class<?>[] types = finder.getParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<?> type = types[i];
+            if (type == String.class) args[i] = "explain";
+            else if (type == LocalDateTime.class) args[i] = LocalDateTime.now();
+            else if (type == Boolean.class || type == boolean.class) args[i] = Boolean.TRUE;
+            else if (type == Integer.class || type == int.class) args[i] = 0;
+            else if (type == Long.class || type == long.class) args[i] = 0L;
+            else if (Collection.class.isAssignableFrom(type)) args[i] = List.of("explain");
+            else throw new IllegalArgumentException("No sample value for " + type + " in " + finder);
+        }
+        return args;
+    }
+}
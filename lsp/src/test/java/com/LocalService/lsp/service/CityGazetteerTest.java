@@ -0,0 +1,33 @@
+package com.LocalService.lsp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CityGazetteerTest {
+
+    @Test
+    void aliasesAndMisspellingsResolveToTheSameCity() {
+        CityGazetteer gazetteer = new CityGazetteer();
+        gazetteer.load();
+
+        CityGazetteer.City bengaluru = gazetteer.resolve("Bengaluru");
+        assertEquals("bengaluru", bengaluru.key());
+        assertEquals(bengaluru, gazetteer.resolve(" BANGALORE "));
+        assertEquals(bengaluru, gazetteer.resolve("Bangalor"));
+        assertEquals(bengaluru, gazetteer.resolve("Bengaluuru"));
+        assertEquals("chennai", gazetteer.resolve("Madras").key());
+        assertEquals("thiruvananthapuram", gazetteer.resolve("Tiruvananthapuram").key());
+    }
+
+    @Test
+    void unknownOrTooShortNamesDoNotGuess() {
+        CityGazetteer gazetteer = new CityGazetteer();
+        gazetteer.load();
+
+        assertNull(gazetteer.resolve("Atlantis"));
+        assertNull(gazetteer.resolve("Pun"));   // too short to fuzzy-match
+        assertNull(gazetteer.resolve("   "));
+    }
+}
@@ -0,0 +1,61 @@
+package com.LocalService.lsp.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    private static void assertWithin(long expected, long actual, double tolerance) {
+        assertTrue(Math.abs(actual - expected) <= expected * tolerance,
+                () -> "estimate " + actual + " not within " + tolerance * 100 + "% of " + expected);
+    }
+
+    @Test
+    void estimatesDistinctValuesAndIgnoresRepeats() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("session-" + i);
+        }
+        byte[] before = sketch.toBytes();
+        for (int i = 0; i < 100_000; i += 7) {
+            assertFalse(sketch.add("session-" + i));
+        }
+        assertEquals(before.length, sketch.toBytes().length);
+        assertWithin(100_000, sketch.estimate(), 0.07); // three standard errors
+
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 40; i++) {
+            small.add("viewer-" + i);
+            small.add("viewer-" + i);
+        }
+        assertWithin(40, small.estimate(), 0.05);
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    void mergedDaysMatchOneSketchOverTheWholeRange() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        HyperLogLog whole = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            monday.add("s" + i);
+            whole.add("s" + i);
+        }
+        for (int i = 20_000; i < 50_000; i++) { // 10k sessions came back on Tuesday
+            tuesday.add("s" + i);
+            whole.add("s" + i);
+        }
+
+        HyperLogLog range = HyperLogLog.fromBytes(monday.toBytes());
+        range.merge(HyperLogLog.fromBytes(tuesday.toBytes()));
+        assertEquals(whole.estimate(), range.estimate());
+        assertWithin(50_000, range.estimate(), 0.07);
+
+        assertEquals(0, HyperLogLog.fromBytes(null).estimate());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[16]));
+    }
+}
@@ -0,0 +1,54 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Provider;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProviderTermIndexTest {
+
+    private static Provider provider(String id, String city, String... categories) {
+        Provider p = new Provider();
+        p.setId(id);
+        p.setCity(city);
+        p.setServiceCategory(List.of(categories));
+        p.setServiceCategoryKeys(SearchKeys.normalizeAll(p.getServiceCategory()));
+        p.setCityKey(SearchKeys.normalize(city));
+        return p;
+    }
+
+    @Test
+    void resolvesSubstringsToNormalizedKeys() {
+        ProviderTermIndex index = new ProviderTermIndex();
+        index.upsert(provider("1", "Bengalūru", "Plumber"));
+        index.upsert(provider("2", "Pune", "Plumbing Repair", "House Cleaning"));
+
+        assertEquals(Set.of("plumber", "plumbing repair"), index.resolve(ProviderTermIndex.Field.CATEGORY, " PLUMB "));
+        assertEquals(Set.of("bengaluru"), index.resolve(ProviderTermIndex.Field.CITY, "bengaluru"));
+        assertEquals(Set.of(), index.resolve(ProviderTermIndex.Field.CATEGORY, "tutor"));
+    }
+
+    @Test
+    void suggestsByPrefixAndWordPrefixRankedByPopularity() {
+        ProviderTermIndex index = new ProviderTermIndex();
+        index.upsert(provider("1", "Pune", "House Cleaning"));
+        index.upsert(provider("2", "Pune", "Carpet Cleaning", "Carpentry"));
+        index.upsert(provider("3", "Patna", "Carpentry"));
+
+        List<ProviderTermIndex.Suggestion> carp = index.suggest(ProviderTermIndex.Field.CATEGORY, "carp", 5);
+        assertEquals(List.of("Carpentry", "Carpet Cleaning"), carp.stream().map(ProviderTermIndex.Suggestion::value).toList());
+        assertEquals(2, carp.get(0).count());
+
+        List<ProviderTermIndex.Suggestion> clean = index.suggest(ProviderTermIndex.Field.CATEGORY, "clean", 5);
+        assertEquals(List.of("Carpet Cleaning", "House Cleaning"), clean.stream().map(ProviderTermIndex.Suggestion::value).toList());
+
+        // Re-saving a provider moves its postings
+        index.upsert(provider("3", "Pune", "Painting"));
+        assertEquals(1, index.suggest(ProviderTermIndex.Field.CATEGORY, "carp", 5).get(0).count());
+        assertEquals(List.of("Pune"), index.suggest(ProviderTermIndex.Field.CITY, "p", 5).stream()
+                .map(ProviderTermIndex.Suggestion::value).toList());
+    }
+}
@@ -0,0 +1,66 @@
+package com.LocalService.lsp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersForOneKeyShareOneComputation() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", registry);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> leader = pool.submit(() -> flight.execute("k", () -> {
+                runs.incrementAndGet();
+                leaderStarted.countDown();
+                await(release);
+                return 42;
+            }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            Future<Integer> follower1 = pool.submit(() -> flight.execute("k", runs::incrementAndGet));
+            Future<Integer> follower2 = pool.submit(() -> flight.execute("k", runs::incrementAndGet));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.counter("test.coalesced").count() < 2 && System.nanoTime() < deadline) Thread.onSpinWait();
+            release.countDown();
+            assertEquals(2.0, registry.counter("test.coalesced").count(), "followers did not join the flight");
+
+            assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+            assertEquals(42, follower1.get(5, TimeUnit.SECONDS));
+            assertEquals(42, follower2.get(5, TimeUnit.SECONDS));
+            assertEquals(1, runs.get());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // nothing is remembered once the flight lands
+        assertEquals(7, flight.execute("k", () -> 7));
+    }
+
+    @Test
+    void failureIsRethrownAndNotRemembered() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test", new SimpleMeterRegistry());
+        assertThrows(IllegalStateException.class, () -> flight.execute("k", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(1, flight.execute("k", () -> 1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
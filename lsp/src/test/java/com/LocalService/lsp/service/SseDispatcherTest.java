@@ -0,0 +1,139 @@
+package com.LocalService.lsp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseDispatcherTest {
+
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /** An emitter whose client reads nothing until released. */
+    private static class StalledEmitter extends SseEmitter {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final List<String> written = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StringBuilder frame = new StringBuilder();
+            items.forEach(item -> frame.append(item.getData()));
+            written.add(frame.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+
+    private SseDispatcher dispatcher(SseDispatcher.SlowConsumerPolicy policy) {
+        scheduler.initialize();
+        SseDispatcher dispatcher = new SseDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "taskScheduler", scheduler);
+        ReflectionTestUtils.setField(dispatcher, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(dispatcher, "outboxCapacity", 2);
+        ReflectionTestUtils.setField(dispatcher, "slowConsumerPolicy", policy);
+        ReflectionTestUtils.setField(dispatcher, "writerThreads", 1);
+        ReflectionTestUtils.setField(dispatcher, "maxWriterThreads", 4);
+        ReflectionTestUtils.setField(dispatcher, "writeTimeoutSeconds", 3600L);
+        ReflectionTestUtils.setField(dispatcher, "heartbeatSeconds", 3600L);
+        ReflectionTestUtils.setField(dispatcher, "staleAfterSeconds", 3600L);
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    @Test
+    void slowClientIsDisconnectedWithoutBlockingTheSender() throws InterruptedException {
+        SseDispatcher dispatcher = dispatcher(SseDispatcher.SlowConsumerPolicy.DISCONNECT);
+        StalledEmitter stalled = new StalledEmitter();
+        dispatcher.register("u1", stalled);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            dispatcher.send("u1", SseEmitter.event().name("PAYMENT_UPDATE").data("tx-" + i));
+        }
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1), "send() waited on the client");
+        assertEquals(0, dispatcher.activeConnections());
+
+        stalled.release.countDown();
+        assertTrue(stalled.completed.await(5, TimeUnit.SECONDS), "stream was not completed after the write returned");
+        assertEquals(1.0, meterRegistry.get("sse.connections.reaped").tag("reason", "slow_consumer").counter().count());
+    }
+
+    @Test
+    void dropOldestKeepsTheStreamAndDeliversTheNewestFramesInOrder() throws InterruptedException {
+        SseDispatcher dispatcher = dispatcher(SseDispatcher.SlowConsumerPolicy.DROP_OLDEST);
+        StalledEmitter stalled = new StalledEmitter();
+        dispatcher.register("u1", stalled);
+
+        dispatcher.send("u1", SseEmitter.event().data("tx-0"));
+        awaitDrained(dispatcher); // the writer now holds tx-0 and is stuck on the client
+        for (int i = 1; i < 10; i++) {
+            dispatcher.send("u1", SseEmitter.event().data("tx-" + i));
+        }
+        assertEquals(1, dispatcher.activeConnections());
+        stalled.release.countDown();
+        awaitDrained(dispatcher);
+        Thread.sleep(50); // let the last send() return
+        // of the frames queued behind the stalled write only the two newest fit the outbox
+        assertEquals(3, stalled.written.size());
+        assertTrue(stalled.written.get(0).contains("tx-0"));
+        assertTrue(stalled.written.get(1).contains("tx-8"));
+        assertTrue(stalled.written.get(2).contains("tx-9"));
+    }
+
+    @Test
+    void writeStuckPastTheTimeoutIsInterruptedAndTheStreamReaped() throws InterruptedException {
+        SseDispatcher dispatcher = dispatcher(SseDispatcher.SlowConsumerPolicy.DISCONNECT);
+        StalledEmitter stalled = new StalledEmitter();
+        StalledEmitter healthy = new StalledEmitter();
+        healthy.release.countDown();
+        dispatcher.register("u1", stalled);
+        dispatcher.register("u2", healthy);
+
+        dispatcher.send("u1", SseEmitter.event().data("tx-0"));
+        awaitDrained(dispatcher); // the only core writer is now stuck on u1's socket
+        dispatcher.send("u2", SseEmitter.event().data("tx-1"));
+        awaitDrained(dispatcher);
+        Thread.sleep(50);
+        assertEquals(1, healthy.written.size(), "a stuck socket held back another stream");
+
+        ReflectionTestUtils.setField(dispatcher, "writeTimeoutSeconds", 0L);
+        ReflectionTestUtils.invokeMethod(dispatcher, "heartbeatAndReap");
+        assertEquals(1, dispatcher.activeConnections());
+        assertTrue(stalled.completed.await(5, TimeUnit.SECONDS), "the stuck writer was not freed");
+        assertEquals(1.0, meterRegistry.get("sse.connections.reaped").tag("reason", "write_timeout").counter().count());
+    }
+
+    private static void awaitDrained(SseDispatcher dispatcher) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dispatcher.pendingFrames() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.LocalService.lsp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseReplayBufferTest {
+
+    private final long base = SseReplayBuffer.idFloor(Instant.now());
+
+    private static SseReplayBuffer.Replay<String> replay(SseReplayBuffer<String> buffer, String user, long lastEventId) {
+        AtomicReference<SseReplayBuffer.Replay<String>> result = new AtomicReference<>();
+        buffer.replaySince(user, lastEventId, result::set);
+        return result.get();
+    }
+
+    @Test
+    void reconnectReplaysOnlyTheEventsAfterLastEventId() {
+        SseReplayBuffer<String> buffer = new SseReplayBuffer<>(8, Duration.ofMinutes(5), 100);
+        for (int i = 1; i <= 5; i++) {
+            buffer.append("u1", new SseReplayBuffer.Event<>(base + i, "tx-" + i), () -> {});
+        }
+        buffer.append("u2", new SseReplayBuffer.Event<>(base + 6, "other"), () -> {});
+
+        SseReplayBuffer.Replay<String> replay = replay(buffer, "u1", base + 3);
+        assertFalse(replay.resync());
+        assertEquals(List.of("tx-4", "tx-5"), replay.events().stream().map(SseReplayBuffer.Event::payload).toList());
+
+        assertTrue(replay(buffer, "u1", base + 5).events().isEmpty());
+        assertFalse(replay(buffer, "u3", base + 5).resync()); // no events for u3 since then
+    }
+
+    @Test
+    void gapsTheBufferCannotCoverAskForResync() {
+        SseReplayBuffer<String> buffer = new SseReplayBuffer<>(3, Duration.ofMinutes(5), 100);
+        for (int i = 1; i <= 5; i++) {
+            buffer.append("u1", new SseReplayBuffer.Event<>(base + i, "tx-" + i), () -> {});
+        }
+
+        assertTrue(replay(buffer, "u1", base + 1).resync());   // tx-2 was trimmed
+        assertFalse(replay(buffer, "u1", base + 2).resync());  // tx-3..tx-5 are all still here
+        assertTrue(replay(buffer, "u1", base - 1).resync());   // from before this buffer existed
+        assertTrue(replay(buffer, "u1", Long.MIN_VALUE).resync());
+    }
+}
@@ -0,0 +1,97 @@
+package com.LocalService.lsp.service;
+
+import com.LocalService.lsp.model.Transaction;
+import com.LocalService.lsp.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Change-stream fan-out against a real replica set (change streams need one).
+ * Opt-in; start a throwaway single-node replica set first, e.g.
+ *   docker run -d -p 27017:27017 mongo:7 --replSet rs0 && docker exec <id> mongosh --eval "rs.initiate()"
+ *   mvn test -Dtest=TransactionChangeStreamTest -Dlsp.replset=true \
+ *       -Dspring.data.mongodb.uri="mongodb://localhost:27017/?replicaSet=rs0&directConnection=true"
+ */
+@EnabledIfSystemProperty(named = "lsp.replset", matches = "true")
+@SpringBootTest(properties = {
+        "lsp.sse.change-stream.enabled=true",
+        "lsp.sse.node-id=change-stream-test",
+        "spring.data.mongodb.database=lsp_change_stream_test"
+})
+class TransactionChangeStreamTest {
+
+    private static final long DELIVERY_TIMEOUT_MS = 10_000;
+
+    @MockitoSpyBean
+    private TransactionEventBroadcaster broadcaster;
+
+    @Autowired
+    private TransactionChangeStreamListener listener;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * The listener subscribes asynchronously and starts "from now": a write before the cursor is open is never seen.
+     */
+    @BeforeEach
+    void awaitSubscription() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DELIVERY_TIMEOUT_MS);
+        while (!listener.isActive() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(listener.isActive(), "change stream subscription did not start");
+    }
+
+    @AfterEach
+    void cleanup() {
+        mongoTemplate.getDb().drop();
+    }
+
+    @Test
+    void writesAreDeliveredThroughTheChangeStream() {
+        Transaction saved = transactionRepository.save(transaction("cust-1", "prov-1"));
+
+        verify(broadcaster, timeout(DELIVERY_TIMEOUT_MS)).deliverLocal(argThat(tx -> saved.getId().equals(tx.getId())), anyLong());
+    }
+
+    @Test
+    void resumesFromStoredTokenAfterRestart() {
+        Transaction first = transactionRepository.save(transaction("cust-2", "prov-2"));
+        verify(broadcaster, timeout(DELIVERY_TIMEOUT_MS)).deliverLocal(argThat(tx -> first.getId().equals(tx.getId())), anyLong());
+
+        listener.stop();
+        Transaction missed = transactionRepository.save(transaction("cust-2", "prov-2"));
+        listener.start();
+
+        verify(broadcaster, timeout(DELIVERY_TIMEOUT_MS)).deliverLocal(argThat(tx -> missed.getId().equals(tx.getId())), anyLong());
+    }
+
+    private static Transaction transaction(String customerId, String providerId) {
+        Transaction tx = new Transaction();
+        tx.setCustomerId(customerId);
+        tx.setProviderId(providerId);
+        tx.setAmount(500.0);
+        tx.setStatus("INITIATED");
+        tx.setCreatedAt(LocalDateTime.now());
+        return tx;
+    }
+}
@@ -0,0 +1,69 @@
+package com.LocalService.lsp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Integer>> written = new CopyOnWriteArrayList<>();
+
+    @Test
+    void flushesFullBatchesRightAwayAndStragglersAfterTheDelay() throws Exception {
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", 100, 3, Duration.ofMillis(200),
+                WriteBehindQueue.OverflowPolicy.DROP, written::add, meterRegistry);
+        for (int i = 1; i <= 4; i++) {
+            queue.offer(i);
+        }
+
+        long started = System.nanoTime();
+        while (written.size() < 2 && System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5)) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of(List.of(1, 2, 3), List.of(4)), written);
+        assertEquals(4.0, meterRegistry.get("test.batch.size").summary().totalAmount());
+        assertEquals(2, meterRegistry.get("test.flush").timer().count());
+        queue.close(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void fullQueueDropsAndCloseDrainsWhatIsQueued() throws Exception {
+        CountDownLatch inSink = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WriteBehindQueue<Integer> queue = new WriteBehindQueue<>("test", 2, 10, Duration.ofMillis(50),
+                WriteBehindQueue.OverflowPolicy.DROP, batch -> {
+                    inSink.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    written.add(batch);
+                }, meterRegistry);
+
+        queue.offer(1);
+        assertTrue(inSink.await(5, TimeUnit.SECONDS)); // flusher is now stuck writing item 1
+        assertTrue(queue.offer(2));
+        assertTrue(queue.offer(3));
+        assertFalse(queue.offer(4));
+        assertEquals(1.0, meterRegistry.get("test.dropped").counter().count());
+        assertEquals(2.0, meterRegistry.get("test.queue.depth").gauge().value());
+
+        release.countDown();
+        queue.close(Duration.ofSeconds(5));
+        assertEquals(List.of(List.of(1), List.of(2, 3)), written);
+
+        assertTrue(queue.offer(5)); // after close: written on the caller's thread
+        assertEquals(List.of(5), written.get(2));
+    }
+}